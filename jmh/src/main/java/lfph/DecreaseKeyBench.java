@@ -0,0 +1,58 @@
+package lfph;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * decreaseKey() in its common case: the node is a child of the root and
+ * stays above it, so the heap's shape does not change. decreaseRoot lowers
+ * the root itself. Run with -prof gc; gc.alloc.rate.norm is the number of
+ * bytes allocated per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class DecreaseKeyBench {
+	@Param({"1000", "100000"})
+	public int size;
+
+	LFPairingHeap<Integer> heap;
+	GraphNode<Integer>[] nodes;
+	GraphNode<Integer> root;
+
+	@State(Scope.Thread)
+	public static class ThreadState {
+		Random random = new Random();
+	}
+
+	// Filled once: per-iteration refills would show up in the allocation rate.
+	@Setup(Level.Trial)
+	public void fill() {
+		Random r = new Random(42);
+		heap = new LFPairingHeap<Integer>();
+		// The root sits just past the vertex ids so the index stays dense.
+		root = new GraphNode<Integer>(size, size, 0);
+		heap.insert(LFPairingHeapBench.newPHNode(root, 0));
+		nodes = new GraphNode[size];
+		for (int i = 0; i < size; i++) {
+			nodes[i] = new GraphNode<Integer>(i, i, 0);
+			heap.insert(LFPairingHeapBench.newPHNode(nodes[i], KeyDistribution.UNIFORM.key(r, i)));
+		}
+	}
+
+	@Benchmark
+	public void decreaseKey(ThreadState t) {
+		GraphNode<Integer> node = nodes[t.random.nextInt(size)];
+		heap.decreaseKey(node, node.phNode.get().distance - 1);
+	}
+
+	@Benchmark
+	public void decreaseRoot() {
+		heap.decreaseKey(root, root.phNode.get().distance - 1);
+	}
+}
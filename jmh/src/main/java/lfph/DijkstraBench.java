@@ -0,0 +1,63 @@
+package lfph;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Dijkstra on a RandomGraph with each of the heap's pairing strategies.
+ * Every vertex is popped once, and in eager mode every relaxation is a
+ * decreaseKey that hangs a copy of the vertex under the root, so the run is
+ * dominated by deleteMin's merge pass. With recycling the heap reuses its
+ * descriptors and PHNode copies; run with -prof gc to see the allocation
+ * rate it saves, and with -jvmArgsAppend -XX:+UseZGC to compare collectors.
+ *
+ * Dijkstra starts its own workers, so the graph is per thread and the
+ * benchmark runs with one JMH thread; HeapBenchmarks never runs it on
+ * more, whatever thread counts it is given.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class DijkstraBench {
+	@Param({"2000", "10000"})
+	public int size;
+
+	// Average number of neighbours per vertex.
+	@Param({"16"})
+	public int degree;
+
+	@Param({"TWO_PASS", "MULTIPASS", "FRONT_TO_BACK", "AUXILIARY_TWO_PASS"})
+	public LFPairingHeap.Pairing pairing;
+
+	@Param({"false", "true"})
+	public boolean lazy;
+
+	@Param({"1"})
+	public int workers;
+
+	@Param({"false", "true"})
+	public boolean recycling;
+
+	RandomGraph graph;
+
+	@Setup(Level.Trial)
+	public void build() {
+		graph = new RandomGraph(size, (double)degree / size, 1);
+	}
+
+	@Setup(Level.Invocation)
+	public void reset() {
+		graph.reset();
+	}
+
+	@Benchmark
+	public int[] dijkstra() throws Exception {
+		Dijkstra<Integer> d = new Dijkstra<Integer>(graph, workers, false, lazy, false, pairing, recycling);
+		d.run();
+		return d.getDistances();
+	}
+}
@@ -0,0 +1,57 @@
+package lfph;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * DijkstraDriver on a RandomGraph with each VertexQueue, so the queues are
+ * compared on the same SSSP loop. A new queue only needs a name in
+ * DijkstraDriver.newQueue() to show up here.
+ *
+ * The driver starts its own workers, so the graph is per thread and the
+ * benchmark runs with one JMH thread; HeapBenchmarks never runs it on
+ * more, whatever thread counts it is given.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class DriverBench {
+	@Param({"2000", "10000"})
+	public int size;
+
+	// Average number of neighbours per vertex.
+	@Param({"16"})
+	public int degree;
+
+	@Param({"lfpairing", "pairing", "skiplist", "lindenjonsson"})
+	public String queue;
+
+	@Param({"false", "true"})
+	public boolean lazy;
+
+	@Param({"1"})
+	public int workers;
+
+	RandomGraph graph;
+
+	@Setup(Level.Trial)
+	public void build() {
+		graph = new RandomGraph(size, (double)degree / size, 1);
+	}
+
+	@Setup(Level.Invocation)
+	public void reset() {
+		graph.reset();
+	}
+
+	@Benchmark
+	public int[] dijkstra() {
+		DijkstraDriver<Integer> d = new DijkstraDriver<Integer>(graph, workers, DijkstraDriver.<Integer>newQueue(queue), lazy);
+		d.run();
+		return d.getDistances();
+	}
+}
@@ -0,0 +1,64 @@
+package lfph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.NoBenchmarksException;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the heap benchmarks once per thread count.
+ *
+ * USAGE: java -jar benchmarks.jar [List of Threads] [JMH options]
+ * EXAMPLE: java -jar benchmarks.jar 1,2,4,8 LFPairingHeapBench -prof gc
+ *
+ * Everything after the thread list goes to JMH as usual; results for t
+ * threads are written to jmh-t.json. With no benchmarks named, they all
+ * run.
+ *
+ * DijkstraBench and DriverBench start their own workers, so they are left
+ * out of the per thread count runs. They get a run of their own on one JMH
+ * thread, with their results in jmh-engines.json.
+ */
+public class HeapBenchmarks {
+	// The benchmarks that start their own workers, and everything else.
+	private static final String ENGINES = "^lfph\\.(DijkstraBench|DriverBench)\\.";
+	private static final String NOT_ENGINES = "^lfph\\.(?!(DijkstraBench|DriverBench)\\.)";
+
+	public static void main(String[] args) throws Exception {
+		String threads = "1,2,4,8";
+		if (args.length > 0 && args[0].matches("[0-9,]+")) {
+			threads = args[0];
+			args = Arrays.copyOfRange(args, 1, args.length);
+		}
+		CommandLineOptions cmd = new CommandLineOptions(args);
+
+		ArrayList<Integer> counts = new ArrayList<Integer>();
+		for (String t : threads.split(","))
+			counts.add(Integer.parseInt(t));
+		for (int t : counts)
+			run(cmd, ENGINES, t, "jmh-" + t + ".json");
+		run(cmd, NOT_ENGINES, 1, "jmh-engines.json");
+	}
+
+	/**
+	 * Runs the selected benchmarks but those matching exclude on the given
+	 * number of threads. Does nothing if that leaves none.
+	 */
+	private static void run(CommandLineOptions cmd, String exclude, int threads, String result) throws Exception {
+		OptionsBuilder options = new OptionsBuilder();
+		options.parent(cmd);
+		if (cmd.getIncludes().isEmpty())
+			options.include("lfph\\..*Bench");
+		options.exclude(exclude);
+		options.threads(threads).resultFormat(ResultFormatType.JSON).result(result);
+		try {
+			new Runner(options.build()).run();
+		} catch (NoBenchmarksException e) {
+			// Only engines or only heaps were asked for.
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package lfph;
+
+import java.util.Random;
+
+/**
+ * Key streams the heap benchmarks are run against. All keys sit well above
+ * zero so decreaseKey() always has room to go down.
+ */
+public enum KeyDistribution {
+	/** Independent keys over a wide range. */
+	UNIFORM,
+	/** Keys that mostly grow, like the distances Dijkstra inserts. */
+	ASCENDING,
+	/** Keys that keep shrinking, so most inserts replace the root. */
+	DESCENDING,
+	/** Few distinct keys, lots of ties. */
+	NARROW;
+
+	public static final int BASE = 1 << 29;
+
+	/**
+	 * @param i position of the key in the stream
+	 */
+	public int key(Random r, int i) {
+		switch (this) {
+		case ASCENDING:
+			return BASE + (i & 0xffffff) * 16 + r.nextInt(16);
+		case DESCENDING:
+			return BASE + (0xffffff - (i & 0xffffff)) * 16 + r.nextInt(16);
+		case NARROW:
+			return BASE + r.nextInt(1024);
+		default:
+			return BASE + r.nextInt(BASE);
+		}
+	}
+}
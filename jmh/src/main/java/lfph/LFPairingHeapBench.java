@@ -0,0 +1,104 @@
+package lfph;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * LFPairingHeap operations on a shared heap. The heap is refilled before
+ * every iteration with size nodes (plus headroom for the batched insert and
+ * deleteMin runs), so runs with different thread counts start alike.
+ *
+ * insert and deleteMin change the heap's size, so they run in single shot
+ * mode and report the time for a batch of BATCH calls per thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class LFPairingHeapBench {
+	// Operations per timed batch for insert and deleteMin.
+	static final int BATCH = 1000;
+
+	@Param({"1000", "100000"})
+	public int size;
+
+	@Param({"UNIFORM", "ASCENDING", "DESCENDING", "NARROW"})
+	public KeyDistribution keys;
+
+	// Route insert and decreaseKey through the flat combiner.
+	@Param({"false", "true"})
+	public boolean combining;
+
+	LFPairingHeap<Integer> heap;
+	GraphNode<Integer>[] nodes;
+	AtomicInteger nextId;
+
+	@State(Scope.Thread)
+	public static class ThreadState {
+		Random random = new Random();
+		int sequence;
+	}
+
+	@Setup(Level.Iteration)
+	public void fill(BenchmarkParams params) {
+		int count = size + BATCH * params.getThreads();
+		Random r = new Random(42);
+		heap = new LFPairingHeap<Integer>(combining);
+		nodes = new GraphNode[count];
+		for (int i = 0; i < count; i++) {
+			nodes[i] = new GraphNode<Integer>(i, i, 0);
+			heap.insert(newPHNode(nodes[i], keys.key(r, i)));
+		}
+		nextId = new AtomicInteger(count);
+	}
+
+	static PHNode<Integer> newPHNode(GraphNode<Integer> node, int key) {
+		PHNode<Integer> phNode = new PHNode<Integer>();
+		phNode.graphNode = node;
+		phNode.distance = key;
+		node.phNode.set(phNode);
+		node.inHeap = true;
+		return phNode;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 20, batchSize = BATCH)
+	@Measurement(iterations = 50, batchSize = BATCH)
+	public void insert(ThreadState t) {
+		int id = nextId.getAndIncrement();
+		heap.insert(newPHNode(new GraphNode<Integer>(id, id, 0), keys.key(t.random, id)));
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 20, batchSize = BATCH)
+	@Measurement(iterations = 50, batchSize = BATCH)
+	public PHNode<Integer> deleteMin() {
+		return heap.deleteMin();
+	}
+
+	@Benchmark
+	public void decreaseKey(ThreadState t) {
+		GraphNode<Integer> node = nodes[t.random.nextInt(size)];
+		heap.decreaseKey(node, node.phNode.get().distance - 1 - t.random.nextInt(16));
+	}
+
+	/**
+	 * Pops the minimum and puts it back with a new key, keeping the heap at a
+	 * steady size.
+	 */
+	@Benchmark
+	public PHNode<Integer> insertDeleteMin(ThreadState t) {
+		PHNode<Integer> min = heap.deleteMin();
+		if (min != null)
+			heap.insert(newPHNode(min.graphNode, keys.key(t.random, size + t.sequence++)));
+		return min;
+	}
+}
@@ -0,0 +1,78 @@
+package lfph;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * The insert and deleteMin runs of SkipListBench on a LindenJonssonPQ, to
+ * set its batched deletion against pollFirst() on a ConcurrentSkipListSet.
+ * There is no decreaseKey; insertDeleteMin re-inserts the popped id with a
+ * new key, as in SkipListBench.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class LindenJonssonBench {
+	static final int BATCH = LFPairingHeapBench.BATCH;
+
+	@Param({"1000", "100000"})
+	public int size;
+
+	@Param({"UNIFORM", "ASCENDING", "DESCENDING", "NARROW"})
+	public KeyDistribution keys;
+
+	// Deleted nodes a pop walks over before unlinking them.
+	@Param({"1", "32"})
+	public int boundOffset;
+
+	LindenJonssonPQ<Integer> queue;
+	AtomicInteger nextId;
+
+	@State(Scope.Thread)
+	public static class ThreadState {
+		Random random = new Random();
+		int sequence;
+	}
+
+	@Setup(Level.Iteration)
+	public void fill(BenchmarkParams params) {
+		int count = size + BATCH * params.getThreads();
+		Random r = new Random(42);
+		queue = new LindenJonssonPQ<Integer>(boundOffset);
+		for (int i = 0; i < count; i++)
+			queue.insert(i, keys.key(r, i), i);
+		nextId = new AtomicInteger(count);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 20, batchSize = BATCH)
+	@Measurement(iterations = 50, batchSize = BATCH)
+	public void insert(ThreadState t) {
+		int id = nextId.getAndIncrement();
+		queue.insert(id, keys.key(t.random, id), id);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 20, batchSize = BATCH)
+	@Measurement(iterations = 50, batchSize = BATCH)
+	public Integer deleteMin() {
+		return queue.deleteMin();
+	}
+
+	@Benchmark
+	public Integer insertDeleteMin(ThreadState t) {
+		Integer min = queue.deleteMin();
+		if (min != null)
+			queue.insert(min, keys.key(t.random, size + t.sequence++), min);
+		return min;
+	}
+}
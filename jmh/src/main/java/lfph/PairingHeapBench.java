@@ -0,0 +1,89 @@
+package lfph;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * PairingHeap on a shared heap, set up like LFPairingHeapBench so the two
+ * can be compared directly. Every PairingHeap operation copies what it
+ * changes and publishes it with a CAS on the root, and decreaseKey searches
+ * the heap, hence the small sizes.
+ *
+ * Each thread only decreases the keys of its own share of the values, so
+ * the values array stays in step with the heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PairingHeapBench {
+	static final int BATCH = LFPairingHeapBench.BATCH;
+
+	@Param({"100", "1000"})
+	public int size;
+
+	@Param({"UNIFORM", "ASCENDING", "DESCENDING", "NARROW"})
+	public KeyDistribution keys;
+
+	PairingHeap<Integer> heap;
+	Weighted<Integer>[] values;
+	AtomicInteger nextId;
+
+	@State(Scope.Thread)
+	public static class ThreadState {
+		Random random = new Random();
+		int index;
+		int stride;
+
+		@Setup(Level.Trial)
+		public void setup(ThreadParams params) {
+			index = params.getThreadIndex();
+			stride = params.getThreadCount();
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void fill(BenchmarkParams params) {
+		int count = size + BATCH * params.getThreads();
+		Random r = new Random(42);
+		values = new Weighted[count];
+		heap = new PairingHeap<Integer>();
+		for (int i = 0; i < count; i++) {
+			values[i] = new Weighted<Integer>(i, keys.key(r, i));
+			heap.insert(values[i]);
+		}
+		nextId = new AtomicInteger(count);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 20, batchSize = BATCH)
+	@Measurement(iterations = 50, batchSize = BATCH)
+	public void insert(ThreadState t) {
+		int id = nextId.getAndIncrement();
+		heap.insert(new Weighted<Integer>(id, keys.key(t.random, id)));
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 20, batchSize = BATCH)
+	@Measurement(iterations = 50, batchSize = BATCH)
+	public Weighted<Integer> deleteMin() {
+		return heap.deleteMin();
+	}
+
+	@Benchmark
+	public void decreaseKey(ThreadState t) {
+		int i = t.index + t.stride * t.random.nextInt(size / t.stride);
+		int weight = values[i].getWeight() - 1 - t.random.nextInt(16);
+		heap.decreaseKey(values[i], weight);
+		values[i] = new Weighted<Integer>(values[i].get(), weight);
+	}
+}
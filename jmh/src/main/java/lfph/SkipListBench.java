@@ -0,0 +1,105 @@
+package lfph;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * Baseline: the same operations as LFPairingHeapBench on a
+ * ConcurrentSkipListSet of (key, id) entries. decreaseKey is a remove and a
+ * re-add, as in DijkstraSkiplist.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SkipListBench {
+	static final int BATCH = LFPairingHeapBench.BATCH;
+
+	@Param({"1000", "100000"})
+	public int size;
+
+	@Param({"UNIFORM", "ASCENDING", "DESCENDING", "NARROW"})
+	public KeyDistribution keys;
+
+	ConcurrentSkipListSet<Entry> set;
+	AtomicReferenceArray<Entry> current;
+	AtomicInteger nextId;
+
+	static final class Entry implements Comparable<Entry> {
+		final int key;
+		final int id;
+
+		Entry(int key, int id) {
+			this.key = key;
+			this.id = id;
+		}
+
+		public int compareTo(Entry rhs) {
+			if (key != rhs.key)
+				return key < rhs.key ? -1 : 1;
+			return id < rhs.id ? -1 : (id == rhs.id ? 0 : 1);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class ThreadState {
+		Random random = new Random();
+		int sequence;
+	}
+
+	@Setup(Level.Iteration)
+	public void fill(BenchmarkParams params) {
+		int count = size + BATCH * params.getThreads();
+		Random r = new Random(42);
+		set = new ConcurrentSkipListSet<Entry>();
+		current = new AtomicReferenceArray<Entry>(count);
+		for (int i = 0; i < count; i++) {
+			Entry e = new Entry(keys.key(r, i), i);
+			current.set(i, e);
+			set.add(e);
+		}
+		nextId = new AtomicInteger(count);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 20, batchSize = BATCH)
+	@Measurement(iterations = 50, batchSize = BATCH)
+	public boolean insert(ThreadState t) {
+		int id = nextId.getAndIncrement();
+		return set.add(new Entry(keys.key(t.random, id), id));
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 20, batchSize = BATCH)
+	@Measurement(iterations = 50, batchSize = BATCH)
+	public Entry deleteMin() {
+		return set.pollFirst();
+	}
+
+	@Benchmark
+	public void decreaseKey(ThreadState t) {
+		int id = t.random.nextInt(size);
+		Entry old = current.get(id);
+		Entry e = new Entry(old.key - 1 - t.random.nextInt(16), id);
+		if (current.compareAndSet(id, old, e) && set.remove(old))
+			set.add(e);
+	}
+
+	@Benchmark
+	public Entry insertDeleteMin(ThreadState t) {
+		Entry min = set.pollFirst();
+		if (min != null)
+			set.add(new Entry(keys.key(t.random, size + t.sequence++), min.id));
+		return min;
+	}
+}
@@ -0,0 +1,24 @@
+import java.util.List;
+
+/**
+ * A VertexQueue that can also insert and pop many vertices in one
+ * structural update. DijkstraDriver uses these to fill the queue in one go,
+ * to insert a lazy round's newly reached vertices together and, in batch
+ * mode, to settle every vertex within the lightest edge of the minimum at
+ * once.
+ */
+public interface BatchVertexQueue<T> extends VertexQueue<T> {
+	/**
+	 * Queues nodes, none of which may be queued already; nodes.get(i) gets
+	 * keys[i].
+	 */
+	public void insertAll(List<GraphNode<T>> nodes, int[] keys);
+
+	/**
+	 * Pops the minimum and every next minimum whose key is at most the
+	 * minimum's plus delta, appending them to out in order.
+	 *
+	 * @return the number of vertices popped, 0 if the queue is empty
+	 */
+	public int deleteMinBatch(int delta, List<GraphNode<T>> out);
+}
@@ -10,14 +10,18 @@ public class Benchmark {
 		
 		if(args.length < 3)
 		{
-			System.out.println("USAGE: Benchmark <SnapGraph File> <Runs> <List of Threads>");
-			System.out.println("EXAMPLE: Benchmark ../graphs/soc-Epinions1.txt 5 1,2,4");
+			System.out.println("USAGE: Benchmark <SnapGraph File | Snapshot .csr File> <Runs> <List of Threads> [Engine]");
+			System.out.println("EXAMPLE: Benchmark ../graphs/soc-Epinions1.txt 5 1,2,4 concurrent");
+			System.out.println("Engines: heap[:<pairing>] (default), recycle, lazy, batch, concurrent, multiqueue, spraylist, delta[:<bucket width>], driver:<queue>");
+			System.out.println("Pairings: two_pass (default), multipass, front_to_back, auxiliary_two_pass");
+			System.out.println("Driver queues (DijkstraDriver): driver:lfpairing, driver:pairing, driver:skiplist, driver:lindenjonsson");
 			System.exit(1);
 		}
 		
 		String file = args[0];
 		int runs = Integer.valueOf(args[1]);
 		String threads = args[2];
+		String engine = args.length > 3 ? args[3] : "heap";
 		Scanner threadScanner = new Scanner(threads);
 		threadScanner.useDelimiter(",");
 		ArrayList<Integer> thread = new ArrayList<Integer>();
@@ -31,13 +35,38 @@ public class Benchmark {
 			{
 				System.out.println("Loading Graph");
 				long time = System.nanoTime();
-				SnapGraph sg = new SnapGraph(file);
+				Graph<Integer> sg = file.endsWith(".csr") ? CSRGraph.load(file) : new SnapGraph(file);
 				double load_time = (System.nanoTime() - time)/1000000000.0;
 				System.out.println("Graph Loaded (" + load_time + ")");
+				// Only delta stepping runs on the CSR arrays themselves; build the
+				// GraphNode view for everything else before the clock starts.
+				if (sg instanceof CSRGraph && !engine.startsWith("delta")) {
+					time = System.nanoTime();
+					sg.getNodes();
+					System.out.println("Node View Built (" + (System.nanoTime() - time)/1000000000.0 + ")");
+				}
 				
-				Dijkstra<Integer> d = new Dijkstra<Integer>(sg,t,false);
 				time = System.nanoTime();
-				d.run();
+				if (engine.equals("concurrent"))
+					new DijkstraConcurrent<Integer>(sg,t).run();
+				else if (engine.equals("multiqueue"))
+					new DijkstraConcurrent<Integer>(sg,t,true).run();
+				else if (engine.equals("spraylist"))
+					new DijkstraConcurrent<Integer>(sg,t,DijkstraConcurrent.QueueKind.SPRAYLIST).run();
+				else if (engine.equals("recycle"))
+					new Dijkstra<Integer>(sg,t,false,false,false,LFPairingHeap.Pairing.TWO_PASS,true).run();
+				else if (engine.equals("lazy"))
+					new Dijkstra<Integer>(sg,t,false,true).run();
+				else if (engine.equals("batch"))
+					new Dijkstra<Integer>(sg,t,false,false,true).run();
+				else if (engine.startsWith("delta"))
+					new DeltaStepping<Integer>(sg,t,engine.indexOf(':') < 0 ? 0 : Integer.parseInt(engine.substring(engine.indexOf(':')+1))).run();
+				else if (engine.startsWith("driver:"))
+					new DijkstraDriver<Integer>(sg,t,DijkstraDriver.<Integer>newQueue(engine.substring(7))).run();
+				else if (engine.startsWith("heap:"))
+					new Dijkstra<Integer>(sg,t,false,false,false,LFPairingHeap.Pairing.valueOf(engine.substring(5).toUpperCase())).run();
+				else
+					new Dijkstra<Integer>(sg,t,false).run();
 				double runtime = (System.nanoTime() - time)/1000000000.0;
 				System.out.println(sg+"\nThreads: " + t + "\n"+runtime);
 				out.println(t+"\t"+runtime);
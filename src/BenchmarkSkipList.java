@@ -10,7 +10,7 @@ public class BenchmarkSkipList {
 		
 		if(args.length < 3)
 		{
-			System.out.println("USAGE: BenchmarkSkipList <SnapGraph File> <Runs> <List of Threads>");
+			System.out.println("USAGE: BenchmarkSkipList <SnapGraph File | Snapshot .csr File> <Runs> <List of Threads> [lazy]");
 			System.out.println("EXAMPLE: BenchmarkSkipList ../graphs/soc-Epinions1.txt 5 1,2,4");
 			System.exit(1);
 		}
@@ -18,6 +18,7 @@ public class BenchmarkSkipList {
 		String file = args[0];
 		int runs = Integer.valueOf(args[1]);
 		String threads = args[2];
+		boolean lazy = args.length > 3 && args[3].equals("lazy");
 		Scanner threadScanner = new Scanner(threads);
 		threadScanner.useDelimiter(",");
 		ArrayList<Integer> thread = new ArrayList<Integer>();
@@ -31,11 +32,11 @@ public class BenchmarkSkipList {
 			{
 				System.out.println("Loading Graph");
 				long time = System.nanoTime();
-				SnapGraph sg = new SnapGraph(file);
+				Graph<Integer> sg = file.endsWith(".csr") ? CSRGraph.load(file) : new SnapGraph(file);
 				double load_time = (System.nanoTime() - time)/1000000000.0;
 				System.out.println("Graph Loaded (" + load_time + ")");
 				
-				DijkstraSkiplist<Integer> d = new DijkstraSkiplist<Integer>(sg,t);
+				DijkstraSkiplist<Integer> d = new DijkstraSkiplist<Integer>(sg,t,lazy);
 				time = System.nanoTime();
 				d.run();
 				double runtime = (System.nanoTime() - time)/1000000000.0;
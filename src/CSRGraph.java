@@ -0,0 +1,314 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * Compressed sparse row representation of a graph. The edges of vertex v are
+ * targets[offsets[v]] .. targets[offsets[v+1]-1] with matching weights, and
+ * per-vertex state lives in parallel int arrays indexed by v. Vertices are
+ * numbered densely from 0; ids[v] keeps whatever id the vertex had before.
+ * offsets, targets, weights and ids are read-only IntBuffers, read with
+ * absolute get(), so any number of threads can share them.
+ *
+ * getNodes() builds an equivalent GraphNode view on first use so the
+ * object-based engines can still run on a CSRGraph.
+ *
+ * A CSRGraph can be saved as a binary snapshot: a header (magic, version,
+ * vertex count, edge count, source, largest weight) followed by offsets,
+ * targets, weights and ids as little-endian ints. load() maps the file and
+ * uses the mapping as is: the buffers are views of it, so nothing is parsed
+ * or copied, and JVMs that open the same snapshot share the page cache.
+ * onHeap() copies a graph's buffers into arrays for callers that want that.
+ */
+public class CSRGraph implements Graph<Integer> {
+	private static final int SNAPSHOT_MAGIC = 0x47525343; // "CSRG"
+	private static final int SNAPSHOT_VERSION = 2;
+	private static final int HEADER_SIZE = 24;
+	// Ints copied per mapped window when an array is too big for one
+	// mapping (2GB at most).
+	private static final int WINDOW = 1 << 28;
+
+	public final int numNodes;
+	public final IntBuffer offsets;
+	public final IntBuffer targets;
+	public final IntBuffer weights;
+	public final IntBuffer ids;
+	public final int source;
+	// Largest edge weight. Unreached vertices start this far below
+	// Integer.MAX_VALUE (plus two), so relaxing an edge out of one can't
+	// overflow.
+	public final int maxWeight;
+	public final int[] distance;
+	private GraphNode<Integer>[] nodeList;
+
+	/**
+	 * Converts a SNAP edge list or a random graph into a snapshot.
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length < 2)
+		{
+			System.out.println("USAGE: CSRGraph <SnapGraph File | random:<size>:<density>:<seed>> <Snapshot File>");
+			System.out.println("EXAMPLE: CSRGraph ../graphs/soc-Epinions1.txt ../graphs/soc-Epinions1.csr");
+			System.exit(1);
+		}
+		
+		CSRGraph graph;
+		if (args[0].startsWith("random:")) {
+			String[] params = args[0].split(":");
+			graph = fromGraph(new RandomGraph(Integer.parseInt(params[1]), Double.parseDouble(params[2]), Integer.parseInt(params[3])));
+		}
+		else
+			graph = new SnapReader(args[0], Runtime.getRuntime().availableProcessors()).getGraph();
+		graph.save(args[1]);
+		System.out.println(graph);
+	}
+
+	public CSRGraph(int[] offsets, int[] targets, int[] weights, int[] ids, int source) {
+		this(IntBuffer.wrap(offsets), IntBuffer.wrap(targets), IntBuffer.wrap(weights), IntBuffer.wrap(ids),
+		     source, maxWeight(weights));
+	}
+
+	private CSRGraph(IntBuffer offsets, IntBuffer targets, IntBuffer weights, IntBuffer ids, int source, int maxWeight) {
+		if (source < 0 || source >= offsets.capacity() - 1)
+			throw new IllegalArgumentException("Source " + source + " is not one of the " + (offsets.capacity() - 1) + " vertices");
+		this.numNodes = offsets.capacity() - 1;
+		this.offsets = offsets.asReadOnlyBuffer();
+		this.targets = targets.asReadOnlyBuffer();
+		this.weights = weights.asReadOnlyBuffer();
+		this.ids = ids.asReadOnlyBuffer();
+		this.source = source;
+		this.maxWeight = maxWeight;
+		this.distance = new int[numNodes];
+		reset();
+	}
+
+	private static int maxWeight(int[] weights) {
+		int max = 0;
+		for (int weight : weights)
+			max = Math.max(max, weight);
+		return max;
+	}
+
+	/**
+	 * Packs an existing object graph. Vertices are numbered in getNodes() order.
+	 */
+	public static <T> CSRGraph fromGraph(Graph<T> graph) {
+		Object[] nodes = graph.getNodes();
+		IdentityHashMap<GraphNode<T>, Integer> index = new IdentityHashMap<GraphNode<T>, Integer>(nodes.length);
+		int[] offsets = new int[nodes.length + 1];
+		int[] ids = new int[nodes.length];
+		for (int v = 0; v < nodes.length; v++) {
+			GraphNode<T> node = (GraphNode<T>)nodes[v];
+			index.put(node, v);
+			ids[v] = node.id;
+			offsets[v + 1] = offsets[v] + node.edgesArray.length;
+		}
+		int[] targets = new int[offsets[nodes.length]];
+		int[] weights = new int[targets.length];
+		for (int v = 0; v < nodes.length; v++) {
+			int pos = offsets[v];
+			for (Object edgeO : ((GraphNode<T>)nodes[v]).edgesArray) {
+				GraphEdge<T> edge = (GraphEdge<T>)edgeO;
+				targets[pos] = index.get(edge.rhs);
+				weights[pos] = edge.weight;
+				pos++;
+			}
+		}
+		return new CSRGraph(offsets, targets, weights, ids, index.get(graph.getSource()));
+	}
+
+	/**
+	 * Opens a snapshot written by save(). The graph reads the file through
+	 * the mapping, which stays valid after the file is closed.
+	 */
+	public static CSRGraph load(String filename) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(filename, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			if (channel.size() < HEADER_SIZE)
+				throw new IOException(filename + " is not a graph snapshot");
+			IntBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+				.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			if (header.get(0) != SNAPSHOT_MAGIC || header.get(1) != SNAPSHOT_VERSION)
+				throw new IOException(filename + " is not a version " + SNAPSHOT_VERSION + " graph snapshot");
+			int numNodes = header.get(2);
+			int numEdges = header.get(3);
+			int source = header.get(4);
+			int maxWeight = header.get(5);
+			if (numNodes <= 0 || numEdges < 0)
+				throw new IOException(filename + " has no vertices");
+			if (source < 0 || source >= numNodes)
+				throw new IOException(filename + " has source " + source + " but only " + numNodes + " vertices");
+			if (maxWeight < 0)
+				throw new IOException(filename + " has a negative largest weight");
+			long expected = HEADER_SIZE + 4L * ((numNodes + 1) + 2L * numEdges + numNodes);
+			if (channel.size() != expected)
+				throw new IOException(filename + " is truncated (" + channel.size() + " of " + expected + " bytes)");
+
+			long pos = HEADER_SIZE;
+			IntBuffer offsets = mapInts(channel, pos, numNodes + 1);
+			pos += 4L * (numNodes + 1);
+			IntBuffer targets = mapInts(channel, pos, numEdges);
+			pos += 4L * numEdges;
+			IntBuffer weights = mapInts(channel, pos, numEdges);
+			pos += 4L * numEdges;
+			IntBuffer ids = mapInts(channel, pos, numNodes);
+			return new CSRGraph(offsets, targets, weights, ids, source, maxWeight);
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * @return count ints at pos as a view of the file, or copied onto the
+	 * heap a window at a time if they are too many for one mapping
+	 */
+	private static IntBuffer mapInts(FileChannel channel, long pos, int count) throws IOException {
+		if (4L * count <= Integer.MAX_VALUE)
+			return channel.map(FileChannel.MapMode.READ_ONLY, pos, 4L * count)
+				.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+		return IntBuffer.wrap(readInts(channel, pos, count));
+	}
+
+	private static int[] readInts(FileChannel channel, long pos, int count) throws IOException {
+		int[] values = new int[count];
+		for (int done = 0; done < count; ) {
+			int batch = Math.min(WINDOW, count - done);
+			channel.map(FileChannel.MapMode.READ_ONLY, pos + 4L * done, 4L * batch)
+				.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values, done, batch);
+			done += batch;
+		}
+		return values;
+	}
+
+	/**
+	 * Writes this graph out as a snapshot that load() can reopen.
+	 */
+	public void save(String filename) throws IOException {
+		FileOutputStream out = new FileOutputStream(filename);
+		try {
+			FileChannel channel = out.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 22).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(numNodes).putInt(numEdges()).putInt(source)
+				.putInt(maxWeight);
+			buffer.flip();
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+			writeInts(channel, buffer, offsets);
+			writeInts(channel, buffer, targets);
+			writeInts(channel, buffer, weights);
+			writeInts(channel, buffer, ids);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void writeInts(FileChannel channel, ByteBuffer buffer, IntBuffer values) throws IOException {
+		buffer.clear();
+		IntBuffer ints = buffer.asIntBuffer();
+		for (int done = 0; done < values.capacity(); ) {
+			int batch = Math.min(ints.capacity(), values.capacity() - done);
+			IntBuffer window = values.duplicate();
+			window.limit(done + batch);
+			window.position(done);
+			ints.clear();
+			ints.put(window);
+			buffer.clear();
+			buffer.limit(4 * batch);
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+			done += batch;
+		}
+	}
+
+	/**
+	 * @return this graph if its buffers are on the heap already, else a copy
+	 * whose buffers are
+	 */
+	public CSRGraph onHeap() {
+		if (!offsets.isDirect() && !targets.isDirect() && !weights.isDirect() && !ids.isDirect())
+			return this;
+		return new CSRGraph(IntBuffer.wrap(toArray(offsets)), IntBuffer.wrap(toArray(targets)),
+		                    IntBuffer.wrap(toArray(weights)), IntBuffer.wrap(toArray(ids)), source, maxWeight);
+	}
+
+	/**
+	 * @return a copy of all of ints
+	 */
+	public static int[] toArray(IntBuffer ints) {
+		int[] values = new int[ints.capacity()];
+		IntBuffer all = ints.duplicate();
+		all.clear();
+		all.get(values);
+		return values;
+	}
+
+	/**
+	 * @return a copy of distance with vertices that were never reached set
+	 * to Graph.UNREACHED
+	 */
+	public int[] getDistances() {
+		int unset = unset();
+		int[] copy = new int[numNodes];
+		for (int v = 0; v < numNodes; v++)
+			copy[v] = distance[v] >= unset ? Graph.UNREACHED : distance[v];
+		return copy;
+	}
+
+	/**
+	 * @return the distance reset() starts every vertex but the source at
+	 */
+	private int unset() {
+		return Integer.MAX_VALUE - (maxWeight + 2);
+	}
+
+	public int numEdges() {
+		return targets.capacity();
+	}
+
+	public Object[] getNodes() {
+		return nodes();
+	}
+
+	/**
+	 * Builds the GraphNode view the first time it is asked for.
+	 */
+	private synchronized GraphNode<Integer>[] nodes() {
+		if (nodeList == null) {
+			GraphNode<Integer>[] nodes = newNodes(numNodes);
+			for (int v = 0; v < numNodes; v++) {
+				nodes[v] = new GraphNode<Integer>(ids.get(v), v, 0);
+				nodes[v].distance = distance[v];
+			}
+			for (int v = 0; v < numNodes; v++) {
+				int first = offsets.get(v);
+				Object[] edges = new Object[offsets.get(v + 1) - first];
+				for (int e = first; e < first + edges.length; e++)
+					edges[e - first] = new GraphEdge<Integer>(nodes[targets.get(e)], weights.get(e));
+				nodes[v].edgesArray = edges;
+				nodes[v].edges = null;
+			}
+			nodeList = nodes;
+		}
+		return nodeList;
+	}
+
+	public GraphNode<Integer> getSource() {
+		return nodes()[source];
+	}
+
+	@SuppressWarnings("unchecked")
+	private static GraphNode<Integer>[] newNodes(int n) {
+		return (GraphNode<Integer>[])new GraphNode<?>[n];
+	}
+
+	public String toString() {
+		return "CSRGraph\nNodes: " + numNodes + " Edges: " + numEdges();
+	}
+
+	public void reset() {
+		Arrays.fill(distance, unset());
+		distance[source] = 0;
+	}
+}
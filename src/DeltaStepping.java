@@ -0,0 +1,335 @@
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Delta-stepping single source shortest paths (Meyer and Sanders). Vertices
+ * are kept in buckets of width delta; all vertices of the current bucket are
+ * relaxed at once by the worker pool, first along their light edges (weight
+ * <= delta) until the bucket stops refilling, then along their heavy edges.
+ *
+ * A vertex may sit in several buckets at once; entries whose distance no
+ * longer maps to the bucket being processed are skipped.
+ */
+public class DeltaStepping<T> {
+	@SuppressWarnings("rawtypes")
+	private static final AtomicIntegerFieldUpdater<GraphNode> DISTANCE =
+		AtomicIntegerFieldUpdater.newUpdater(GraphNode.class, "distance");
+
+	private Graph<T> graph;
+	private int numWorkers;
+	private int delta;
+	// Final distances by vertex id, filled in by run().
+	private int[] distances;
+	// Cyclic: bucket i lives at i % buckets.length.
+	private ConcurrentLinkedQueue<GraphNode<T>>[] buckets;
+	private ExecutorService pool;
+
+	public static void main(String[] args) throws IOException {
+		DeltaStepping<Integer> d = new DeltaStepping<Integer>(new RandomGraph(100000, 0.15, 0), Integer.parseInt(args[0]));
+		long time = System.nanoTime();
+		d.run();
+		System.out.println((System.nanoTime() - time)/1000000000.0);
+	}
+
+	/**
+	 * Picks delta as the maximum edge weight over the average degree.
+	 */
+	public DeltaStepping(Graph<T> graph, int numWorkers) {
+		this(graph, numWorkers, 0);
+	}
+
+	public DeltaStepping(Graph<T> graph, int numWorkers, int delta) {
+		this.graph = graph;
+		this.numWorkers = numWorkers;
+		this.delta = delta;
+	}
+
+	public int getDelta() {
+		return delta;
+	}
+
+	public void run() throws IOException {
+		if (graph instanceof CSRGraph) {
+			runCSR((CSRGraph)graph);
+			distances = ((CSRGraph)graph).getDistances();
+			return;
+		}
+		Object[] nodes = graph.getNodes();
+		int maxWeight = 1;
+		long numEdges = 0;
+		for (Object nodeO : nodes) {
+			Object[] edges = ((GraphNode<T>)nodeO).edgesArray;
+			numEdges += edges.length;
+			for (Object edgeO : edges)
+				maxWeight = Math.max(maxWeight, ((GraphEdge<T>)edgeO).weight);
+		}
+		if (delta <= 0)
+			delta = (int)Math.max(1, (long)maxWeight * nodes.length / Math.max(1, numEdges));
+
+		// A relaxation never lands more than maxWeight / delta buckets ahead.
+		buckets = newBuckets(maxWeight / delta + 2);
+		for (int i = 0; i < buckets.length; i++)
+			buckets[i] = new ConcurrentLinkedQueue<GraphNode<T>>();
+
+		pool = Executors.newFixedThreadPool(numWorkers);
+		try {
+			GraphNode<T> source = graph.getSource();
+			buckets[bucketOf(source.distance) % buckets.length].add(source);
+
+			int current = 0;
+			int empty = 0;
+			ArrayList<GraphNode<T>> frontier = new ArrayList<GraphNode<T>>();
+			LinkedHashSet<GraphNode<T>> settled = new LinkedHashSet<GraphNode<T>>();
+			// Stop after a full lap of the buckets comes up empty.
+			while (empty < buckets.length) {
+				ConcurrentLinkedQueue<GraphNode<T>> bucket = buckets[current % buckets.length];
+				if (bucket.isEmpty()) {
+					empty++;
+					current++;
+					continue;
+				}
+				empty = 0;
+
+				settled.clear();
+				while (!bucket.isEmpty()) {
+					frontier.clear();
+					GraphNode<T> node;
+					while ((node = bucket.poll()) != null) {
+						if (bucketOf(node.distance) == current) {
+							frontier.add(node);
+							settled.add(node);
+						}
+					}
+					relaxAll(frontier.toArray(), true);
+				}
+				relaxAll(settled.toArray(), false);
+				current++;
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		distances = new int[GraphNode.idBound(nodes)];
+		Arrays.fill(distances, Graph.UNREACHED);
+		for (Object nodeO : nodes) {
+			GraphNode<T> node = (GraphNode<T>)nodeO;
+			distances[node.id] = GraphNode.reported(node.distance);
+		}
+	}
+
+	/**
+	 * @return the distances of the last run, indexed by vertex id; vertices
+	 * that were never reached read Graph.UNREACHED
+	 */
+	public int[] getDistances() {
+		return distances;
+	}
+
+	public int getDistance(int id) {
+		return distances[id];
+	}
+
+	public int getDistance(GraphNode<T> node) {
+		return distances[node.id];
+	}
+
+	private int bucketOf(int distance) {
+		return distance / delta;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> ConcurrentLinkedQueue<GraphNode<T>>[] newBuckets(int n) {
+		return (ConcurrentLinkedQueue<GraphNode<T>>[])new ConcurrentLinkedQueue<?>[n];
+	}
+
+	/**
+	 * Relaxes either the light or the heavy edges of every node in frontier,
+	 * split across the worker pool, and waits for them to finish.
+	 */
+	private void relaxAll(final Object[] frontier, final boolean light) {
+		if (frontier.length == 0)
+			return;
+		ArrayList<Callable<Object>> tasks = new ArrayList<Callable<Object>>(numWorkers);
+		for (int i = 0; i < numWorkers; i++) {
+			final int offset = i;
+			tasks.add(new Callable<Object>() {
+				public Object call() {
+					for (int pos = offset; pos < frontier.length; pos += numWorkers)
+						relaxEdges((GraphNode<T>)frontier[pos], light);
+					return null;
+				}
+			});
+		}
+		try {
+			for (Future<Object> f : pool.invokeAll(tasks))
+				f.get();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private void relaxEdges(GraphNode<T> node, boolean light) {
+		int distToNode = node.distance;
+		for (Object edgeO : node.edgesArray) {
+			GraphEdge<T> edge = (GraphEdge<T>)edgeO;
+			if ((edge.weight <= delta) != light)
+				continue;
+			int newDistance = distToNode + edge.weight;
+			int current;
+			while (newDistance < (current = edge.rhs.distance)) {
+				if (DISTANCE.compareAndSet(edge.rhs, current, newDistance)) {
+					buckets[bucketOf(newDistance) % buckets.length].add(edge.rhs);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Same algorithm directly on the CSR buffers. Workers write the vertices they
+	 * improve into their own buffers, which are sorted into buckets between
+	 * rounds, so no queue nodes or boxed integers are allocated.
+	 */
+	private void runCSR(final CSRGraph csr) {
+		int maxWeight = Math.max(1, csr.maxWeight);
+		if (delta <= 0)
+			delta = (int)Math.max(1, (long)maxWeight * csr.numNodes / Math.max(1, csr.numEdges()));
+
+		final AtomicIntegerArray dist = new AtomicIntegerArray(csr.distance);
+		IntList[] intBuckets = new IntList[maxWeight / delta + 2];
+		for (int i = 0; i < intBuckets.length; i++)
+			intBuckets[i] = new IntList();
+		final IntList[] improved = new IntList[numWorkers];
+		for (int i = 0; i < numWorkers; i++)
+			improved[i] = new IntList();
+		// seen[v] == round when v is already in this round's frontier / settled.
+		int[] seenFrontier = new int[csr.numNodes];
+		int[] seenSettled = new int[csr.numNodes];
+		Arrays.fill(seenFrontier, -1);
+		Arrays.fill(seenSettled, -1);
+
+		pool = Executors.newFixedThreadPool(numWorkers);
+		try {
+			intBuckets[bucketOf(dist.get(csr.source)) % intBuckets.length].add(csr.source);
+
+			int current = 0;
+			int empty = 0;
+			int round = 0;
+			IntList frontier = new IntList();
+			IntList settled = new IntList();
+			while (empty < intBuckets.length) {
+				IntList bucket = intBuckets[current % intBuckets.length];
+				if (bucket.size == 0) {
+					empty++;
+					current++;
+					continue;
+				}
+				empty = 0;
+
+				settled.clear();
+				while (bucket.size > 0) {
+					frontier.clear();
+					for (int i = 0; i < bucket.size; i++) {
+						int v = bucket.data[i];
+						if (bucketOf(dist.get(v)) != current || seenFrontier[v] == round)
+							continue;
+						seenFrontier[v] = round;
+						frontier.add(v);
+						if (seenSettled[v] != current) {
+							seenSettled[v] = current;
+							settled.add(v);
+						}
+					}
+					bucket.clear();
+					round++;
+					relaxAllCSR(csr, dist, frontier, improved, true);
+					distribute(improved, dist, intBuckets);
+				}
+				relaxAllCSR(csr, dist, settled, improved, false);
+				distribute(improved, dist, intBuckets);
+				current++;
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		for (int v = 0; v < csr.numNodes; v++)
+			csr.distance[v] = dist.get(v);
+	}
+
+	private void distribute(IntList[] improved, AtomicIntegerArray dist, IntList[] intBuckets) {
+		for (IntList list : improved) {
+			for (int i = 0; i < list.size; i++) {
+				int v = list.data[i];
+				intBuckets[bucketOf(dist.get(v)) % intBuckets.length].add(v);
+			}
+			list.clear();
+		}
+	}
+
+	private void relaxAllCSR(final CSRGraph csr, final AtomicIntegerArray dist, final IntList frontier,
+	                         final IntList[] improved, final boolean light) {
+		if (frontier.size == 0)
+			return;
+		final IntBuffer offsets = csr.offsets, targets = csr.targets, weights = csr.weights;
+		ArrayList<Callable<Object>> tasks = new ArrayList<Callable<Object>>(numWorkers);
+		for (int i = 0; i < numWorkers; i++) {
+			final int offset = i;
+			tasks.add(new Callable<Object>() {
+				public Object call() {
+					IntList out = improved[offset];
+					for (int pos = offset; pos < frontier.size; pos += numWorkers) {
+						int v = frontier.data[pos];
+						int distToV = dist.get(v);
+						for (int e = offsets.get(v); e < offsets.get(v + 1); e++) {
+							int weight = weights.get(e);
+							if ((weight <= delta) != light)
+								continue;
+							int target = targets.get(e);
+							int newDistance = distToV + weight;
+							int current;
+							while (newDistance < (current = dist.get(target))) {
+								if (dist.compareAndSet(target, current, newDistance)) {
+									out.add(target);
+									break;
+								}
+							}
+						}
+					}
+					return null;
+				}
+			});
+		}
+		try {
+			for (Future<Object> f : pool.invokeAll(tasks))
+				f.get();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Growable int array.
+	 */
+	private static class IntList {
+		public int[] data = new int[16];
+		public int size;
+
+		public void add(int v) {
+			if (size == data.length)
+				data = Arrays.copyOf(data, size * 2);
+			data[size++] = v;
+		}
+
+		public void clear() {
+			size = 0;
+		}
+	}
+}
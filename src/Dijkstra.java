@@ -1,13 +1,23 @@
 import java.io.IOException;
-import java.util.*;
-import java.util.Map.*;
-import java.util.concurrent.*;
 
+/**
+ * Dijkstra's algorithm on the concurrent pairing heap: DijkstraDriver with an
+ * LFPairingHeapQueue.
+ */
 public class Dijkstra<T> {
 	private Graph<T> graph;
 	private int numWorkers;
-	private ConcurrentHashMap<GraphNode<T>, Integer> distances;
+	// Settled distances by vertex id, filled in by run().
+	private int[] distances;
 	private boolean debug;
+	// Only insert vertices once they are reached; see run().
+	private boolean lazy;
+	// Settle a whole batch of vertices per round; see run().
+	private boolean batch;
+	// How the heap merges a popped root's children.
+	private LFPairingHeap.Pairing pairing = LFPairingHeap.Pairing.TWO_PASS;
+	// Let the heap reuse its descriptors and copies.
+	private boolean recycling;
 	
 	public static void main(String[] args) throws IOException {
 		//System.out.println("Running with " + Integer.parseInt(args[0]) + " threads.");
@@ -19,19 +29,11 @@ public class Dijkstra<T> {
 			d.run();
 			System.out.println((System.nanoTime() - time)/1000000000.0);
 			break;
-			/*for(Entry<GraphNode<Integer>, Integer> entry : d.distances.entrySet())
-				System.out.println(entry.getKey().id + " -> " + entry.getValue());*/
-			//break;
-			/*for(int i = 0; i < d.distances.size(); i++) {
-				boolean found = false;
-				for(Entry<GraphNode<Integer>, Integer> entry : d.distances.entrySet()) {
-					if (entry.getKey().id == i) {
-						found = true;
-						System.out.println(entry.getKey().toString() + " -> " + entry.getValue());
-					}
-				}
-				if (!found)
+			/*for(int i = 0; i < d.getDistances().length; i++) {
+				if (d.getDistance(i) == Graph.UNREACHED)
 					System.out.println("*** " + i + " missing! ***");
+				else
+					System.out.println(i + " -> " + d.getDistance(i));
 			}
 			break;*/
 		}
@@ -40,134 +42,74 @@ public class Dijkstra<T> {
 	public Dijkstra(Graph<T> graph, int numWorkers, boolean d) {
 		this.graph = graph;
 		this.numWorkers = numWorkers;
-		this.distances = new ConcurrentHashMap<GraphNode<T>, Integer>();
 		debug = d;
 	}
 	
+	public Dijkstra(Graph<T> graph, int numWorkers, boolean d, boolean lazy) {
+		this(graph, numWorkers, d);
+		this.lazy = lazy;
+	}
+	
+	public Dijkstra(Graph<T> graph, int numWorkers, boolean d, boolean lazy, boolean batch) {
+		this(graph, numWorkers, d, lazy);
+		this.batch = batch;
+	}
+	
+	/**
+	 * @param pairing the heap's merge strategy for deleteMin()
+	 */
+	public Dijkstra(Graph<T> graph, int numWorkers, boolean d, boolean lazy, boolean batch, LFPairingHeap.Pairing pairing) {
+		this(graph, numWorkers, d, lazy, batch);
+		this.pairing = pairing;
+	}
+	
+	/**
+	 * @param recycling have the heap pool its descriptors and PHNode copies
+	 */
+	public Dijkstra(Graph<T> graph, int numWorkers, boolean d, boolean lazy, boolean batch, LFPairingHeap.Pairing pairing, boolean recycling) {
+		this(graph, numWorkers, d, lazy, batch, pairing);
+		this.recycling = recycling;
+	}
+	
 	public Dijkstra(Graph<T> graph, int numWorkers)
 	{
 		this.graph = graph;
 		this.numWorkers = numWorkers;
-		this.distances = new ConcurrentHashMap<GraphNode<T>, Integer>();
 		debug = true;
 	}
 	
+	/**
+	 * Runs Dijkstra from the graph's source.
+	 *
+	 * In lazy mode only the source is inserted up front; each round's newly
+	 * reached vertices go in together once the round is over, and
+	 * unreachable vertices never touch the heap.
+	 *
+	 * In batch mode each round pops every vertex within the lightest edge
+	 * weight of the minimum (deleteMinBatch()) and the workers relax all of
+	 * their edges in the same round; see DijkstraDriver.
+	 */
 	public void run() throws IOException {
-		// Create worker threads.
-		ArrayList<DijkstraWorker> workers = new ArrayList<DijkstraWorker>(numWorkers);
-		CountDownLatch startLatch = new CountDownLatch(1);
-		LFPairingHeap<T> heap;
-		
-		// Construct pairing heap
-		PHNode<T> phNode = new PHNode<T>();
-		phNode.graphNode = graph.getSource();
-		phNode.graphNode.phNode.set(phNode);
-		phNode.distance = 0;
-		phNode.graphNode.distance = -1;
-		
-		heap = new LFPairingHeap<T>(phNode);
-		
-		for (Object nodeO : graph.getNodes()) {
-			GraphNode<T> node = (GraphNode<T>)nodeO;
-			
-			// Don't re-insert the source.
-			if (node.id == graph.getSource().id)
-				continue;
-			
-			phNode = new PHNode<T>();
-			phNode.graphNode = node;
-			phNode.graphNode.phNode.set(phNode);
-			phNode.distance = node.distance;
-			node.distance = -1;
-			heap.insert(phNode);
-		}
-		
-		while(workers.size() < numWorkers) {
-			DijkstraWorker worker = new DijkstraWorker(startLatch, heap);
-			worker.start();
-			workers.add(worker);
-		}
-		
-		while (heap.size() > 0) {
-			// Pop the min distance off and record its distance
-			GraphNode<T> min = heap.deleteMin().graphNode;
-			if(debug)
-				System.out.println(min + " -> " + min.phNode.get().distance);
-			distances.put(min, min.phNode.get().distance);
-			
-			CountDownLatch latch = new CountDownLatch(numWorkers);
-			CountDownLatch nextLatch = new CountDownLatch(1);
-			for(int i = 0; i < workers.size(); i++) {
-				DijkstraWorker worker = workers.get(i);
-				worker.modifyWork(i, numWorkers, min, latch, nextLatch);
-			}
-			startLatch.countDown();
-			startLatch = nextLatch;
-			try {
-				latch.await();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-		}
-		
-		for (DijkstraWorker worker : workers)
-			worker.kill();
-		startLatch.countDown();
+		LFPairingHeap<T> heap = new LFPairingHeap<T>(false, pairing, recycling);
+		DijkstraDriver<T> driver = new DijkstraDriver<T>(graph, numWorkers, new LFPairingHeapQueue<T>(heap),
+		                                                 lazy, batch, debug);
+		driver.run();
+		distances = driver.getDistances();
 	}
 	
-	private class DijkstraWorker extends Thread {
-		private int offset;
-		private int numThreads;
-		//private ArrayList<GraphEdge<T>> edges;
-		private Object[] edges;
-		private GraphNode<T> min;
-		private boolean killed;
-		//private AtomicInteger finishedCounter;
-		private CountDownLatch latch;
-		private CountDownLatch startLatch;
-		private CountDownLatch tmpLatch;
-		private LFPairingHeap<T> heap;
-		
-		public DijkstraWorker(CountDownLatch nextLatch, LFPairingHeap<T> heap) {
-			this.killed = false;
-			this.startLatch = nextLatch;
-			this.heap = heap;
-		}
-		
-		public void modifyWork(int offset, int numThreads, GraphNode<T> min, CountDownLatch latch, CountDownLatch nextLatch) {
-			this.offset = offset;
-			this.numThreads = numThreads;
-			this.min = min;
-			this.edges = min.edgesArray;
-			this.latch = latch;
-			this.tmpLatch = nextLatch;
-		}
-		
-		public void kill() {
-			killed = true;
-		}
-		
-		public void run() {
-			while (!killed) {
-				try {
-					startLatch.await();
-				}
-				catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-				int pos = this.offset;
-				while (!killed) {
-					if (pos >= edges.length)
-						break;					
-					GraphEdge<T> edge = (GraphEdge<T>)edges[pos];
-					int newDistance = min.phNode.get().distance + edge.weight;
-					if (newDistance < edge.rhs.phNode.get().distance)
-						heap.decreaseKey(edge.rhs, newDistance);
-					pos += this.numThreads;
-				}
-				startLatch = tmpLatch;
-				latch.countDown();
-			}
-		}
+	/**
+	 * @return the distances of the last run, indexed by vertex id; vertices
+	 * that were never reached read Graph.UNREACHED
+	 */
+	public int[] getDistances() {
+		return distances;
+	}
+	
+	public int getDistance(int id) {
+		return distances[id];
+	}
+	
+	public int getDistance(GraphNode<T> node) {
+		return distances[node.id];
 	}
 }
@@ -0,0 +1,211 @@
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Label-correcting variant of Dijkstra's algorithm on the concurrent pairing
+ * heap. Unlike Dijkstra, there is no coordinator: every worker pops vertices
+ * off the shared heap itself and relaxes their edges on its own. A vertex
+ * whose distance drops after it was popped is simply queued again, so pops
+ * may happen slightly out of order without affecting the result.
+ *
+ * In multiqueue mode the shared heap is replaced by a MultiQueue with
+ * HEAPS_PER_WORKER heaps per worker. A vertex is queued again every time its
+ * distance drops, each entry carrying the distance it was queued with, and
+ * entries that have been overtaken by a better one are skipped when popped.
+ * Spraylist mode does the same on a SprayList sized for numWorkers threads,
+ * whose pops spread over the first few hundred entries instead of all
+ * workers fighting over the head.
+ */
+public class DijkstraConcurrent<T> {
+	@SuppressWarnings("rawtypes")
+	private static final AtomicIntegerFieldUpdater<GraphNode> DISTANCE =
+		AtomicIntegerFieldUpdater.newUpdater(GraphNode.class, "distance");
+
+	private Graph<T> graph;
+	private int numWorkers;
+	// Final distances by vertex id, filled in by run().
+	private int[] distances;
+	private static final int HEAPS_PER_WORKER = 2;
+
+	private LFPairingHeap<T> heap;
+	private MultiQueue<PHNode<T>> multiQueue;
+	private SprayList<PHNode<T>> sprayList;
+	private QueueKind queueKind = QueueKind.HEAP;
+	// Multiqueue or spraylist: one entry per improvement, stale ones skipped.
+	private boolean relaxed;
+	// Vertices that are queued or currently being relaxed.
+	private AtomicInteger pending;
+
+	public static void main(String[] args) throws IOException {
+		DijkstraConcurrent<Integer> d = new DijkstraConcurrent<Integer>(new RandomGraph(100000, 0.15, 0), Integer.parseInt(args[0]));
+		long time = System.nanoTime();
+		d.run();
+		System.out.println((System.nanoTime() - time)/1000000000.0);
+	}
+
+	public DijkstraConcurrent(Graph<T> graph, int numWorkers) {
+		this.graph = graph;
+		this.numWorkers = numWorkers;
+	}
+
+	/**
+	 * @param multiQueue pop from a relaxed MultiQueue instead of the shared
+	 * concurrent pairing heap
+	 */
+	public DijkstraConcurrent(Graph<T> graph, int numWorkers, boolean multiQueue) {
+		this(graph, numWorkers, multiQueue ? QueueKind.MULTIQUEUE : QueueKind.HEAP);
+	}
+
+	/**
+	 * Which queue the workers pop from.
+	 */
+	public enum QueueKind {
+		// The shared concurrent pairing heap, one entry per vertex.
+		HEAP,
+		// Relaxed, re-queued on every improvement.
+		MULTIQUEUE,
+		// Relaxed like MULTIQUEUE; pops spray near the front of a skip list.
+		SPRAYLIST
+	}
+
+	public DijkstraConcurrent(Graph<T> graph, int numWorkers, QueueKind queue) {
+		this(graph, numWorkers);
+		this.queueKind = queue;
+		this.relaxed = queue != QueueKind.HEAP;
+	}
+
+	public void run() throws IOException {
+		if (queueKind == QueueKind.MULTIQUEUE)
+			multiQueue = new MultiQueue<PHNode<T>>(HEAPS_PER_WORKER * numWorkers);
+		else if (queueKind == QueueKind.SPRAYLIST)
+			sprayList = new SprayList<PHNode<T>>(numWorkers);
+		else
+			heap = new LFPairingHeap<T>();
+		pending = new AtomicInteger(0);
+
+		for (Object nodeO : graph.getNodes()) {
+			GraphNode<T> node = (GraphNode<T>)nodeO;
+			node.inHeap = false;
+			node.queued.set(false);
+		}
+		push(graph.getSource());
+
+		ArrayList<DijkstraWorker> workers = new ArrayList<DijkstraWorker>(numWorkers);
+		while(workers.size() < numWorkers) {
+			DijkstraWorker worker = new DijkstraWorker();
+			worker.start();
+			workers.add(worker);
+		}
+		for (DijkstraWorker worker : workers) {
+			try {
+				worker.join();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+
+		Object[] nodes = graph.getNodes();
+		distances = new int[GraphNode.idBound(nodes)];
+		Arrays.fill(distances, Graph.UNREACHED);
+		for (Object nodeO : nodes) {
+			GraphNode<T> node = (GraphNode<T>)nodeO;
+			distances[node.id] = GraphNode.reported(node.distance);
+		}
+	}
+
+	/**
+	 * @return the distances of the last run, indexed by vertex id; vertices
+	 * that were never reached read Graph.UNREACHED
+	 */
+	public int[] getDistances() {
+		return distances;
+	}
+
+	public int getDistance(int id) {
+		return distances[id];
+	}
+
+	public int getDistance(GraphNode<T> node) {
+		return distances[node.id];
+	}
+
+	/**
+	 * Lowers node's distance to newDistance if that is an improvement.
+	 *
+	 * @return true if this call lowered the distance
+	 */
+	private boolean relax(GraphNode<T> node, int newDistance) {
+		int current;
+		while (newDistance < (current = node.distance)) {
+			if (DISTANCE.compareAndSet(node, current, newDistance))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Makes sure node will be (re)visited with its current distance. Only the
+	 * thread that claims node.queued inserts it; everyone else just nudges its
+	 * key down. In the relaxed modes every improvement is queued as a new
+	 * entry.
+	 */
+	private void push(GraphNode<T> node) {
+		if (relaxed) {
+			pending.incrementAndGet();
+			PHNode<T> entry = new PHNode<T>();
+			entry.graphNode = node;
+			entry.distance = node.distance;
+			if (sprayList != null)
+				sprayList.insert(entry, entry.distance, node.id);
+			else
+				multiQueue.insert(entry, entry.distance);
+			return;
+		}
+		if (!node.queued.compareAndSet(false, true)) {
+			PHNode<T> phNode = node.phNode.get();
+			if (phNode != null && node.distance < phNode.distance)
+				heap.decreaseKey(node, node.distance);
+			return;
+		}
+		pending.incrementAndGet();
+		PHNode<T> phNode = new PHNode<T>();
+		phNode.graphNode = node;
+		phNode.distance = node.distance;
+		node.phNode.set(phNode);
+		node.inHeap = true;
+		heap.insert(phNode);
+	}
+
+	private class DijkstraWorker extends Thread {
+		public void run() {
+			while (true) {
+				PHNode<T> min = sprayList != null ? sprayList.deleteMin()
+				                : multiQueue != null ? multiQueue.deleteMin() : heap.deleteMin();
+				if (min == null) {
+					if (pending.get() == 0)
+						break;
+					Thread.yield();
+					continue;
+				}
+
+				// Release the claim before reading the distance, so a concurrent
+				// improvement either sees it released or is seen by us.
+				GraphNode<T> node = min.graphNode;
+				if (!relaxed)
+					node.queued.set(false);
+				int distToMin = node.distance;
+				// A stale relaxed entry: a later one has the better distance.
+				if (min.distance <= distToMin || !relaxed) {
+					for (Object edgeO : node.edgesArray) {
+						GraphEdge<T> edge = (GraphEdge<T>)edgeO;
+						if (relax(edge.rhs, distToMin + edge.weight))
+							push(edge.rhs);
+					}
+				}
+				pending.decrementAndGet();
+			}
+		}
+	}
+}
@@ -0,0 +1,307 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Dijkstra's algorithm on any VertexQueue. The coordinator pops the closest
+ * vertex and records its distance; the workers then relax its edges, each
+ * taking every numWorkers-th edge, and the next vertex is popped once they
+ * are all done. Dijkstra and DijkstraSkiplist are this loop on their own
+ * queues, so a new queue only needs a VertexQueue to be compared with the
+ * others on the same workload.
+ *
+ * In lazy mode only the source is queued up front; a vertex is queued once
+ * a worker first reaches it (the one whose CAS on its reached state
+ * succeeds), and unreachable vertices never touch the queue. A
+ * BatchVertexQueue is filled with insertAll(): all at once in eager mode,
+ * and in lazy mode with the vertices each round reached, once the round is
+ * over. Until then a reached vertex's key is lowered in a plain array.
+ *
+ * In batch mode (BatchVertexQueue only) each round pops every vertex within
+ * the lightest edge weight of the minimum. None of them can improve
+ * another, since a path through one costs at least that much more than the
+ * minimum, so they are all final and the workers relax all of their edges
+ * in the same round.
+ */
+public class DijkstraDriver<T> {
+	private Graph<T> graph;
+	private int numWorkers;
+	private VertexQueue<T> queue;
+	// queue, if it can insert and pop in bulk, else null.
+	private BatchVertexQueue<T> batchQueue;
+	// Settled distances by vertex id, filled in by run().
+	private int[] distances;
+	// Only queue vertices once they are reached.
+	private boolean lazy;
+	// Settle a whole batch of vertices per round.
+	private boolean batch;
+	// Print every vertex as it is settled.
+	private boolean debug;
+	// Lazy mode: NEW, CLAIMED or QUEUED by vertex id.
+	private AtomicIntegerArray reached;
+	private static final int NEW = 0;
+	private static final int CLAIMED = 1;
+	private static final int QUEUED = 2;
+	// Lazy mode on a BatchVertexQueue: keys of CLAIMED vertices by id.
+	private AtomicIntegerArray pendingKeys;
+
+	public static void main(String[] args) throws Exception {
+		DijkstraDriver<Integer> d = new DijkstraDriver<Integer>(new RandomGraph(5000, 0.05, 0), Integer.parseInt(args[0]),
+		                                                        DijkstraDriver.<Integer>newQueue(args.length > 1 ? args[1] : "lfpairing"));
+		long time = System.nanoTime();
+		d.run();
+		System.out.println((System.nanoTime() - time)/1000000000.0);
+	}
+
+	/**
+	 * @param queue an empty queue; it is used up by run()
+	 */
+	public DijkstraDriver(Graph<T> graph, int numWorkers, VertexQueue<T> queue) {
+		this(graph, numWorkers, queue, false);
+	}
+
+	public DijkstraDriver(Graph<T> graph, int numWorkers, VertexQueue<T> queue, boolean lazy) {
+		this.graph = graph;
+		this.numWorkers = numWorkers;
+		this.queue = queue;
+		this.lazy = lazy;
+		if (queue instanceof BatchVertexQueue)
+			batchQueue = (BatchVertexQueue<T>)queue;
+	}
+
+	/**
+	 * @param batch settle every vertex within the lightest edge of the
+	 * minimum per round; queue has to be a BatchVertexQueue
+	 * @param debug print every vertex as it is settled
+	 */
+	public DijkstraDriver(Graph<T> graph, int numWorkers, VertexQueue<T> queue, boolean lazy, boolean batch, boolean debug) {
+		this(graph, numWorkers, queue, lazy);
+		if (batch && batchQueue == null)
+			throw new IllegalArgumentException("Batch mode needs a BatchVertexQueue");
+		this.batch = batch;
+		this.debug = debug;
+	}
+
+	/**
+	 * @param name lfpairing (LFPairingHeap), pairing (PairingHeap),
+	 * skiplist (ConcurrentSkipListSet) or lindenjonsson (LindenJonssonPQ)
+	 * @return a new, empty queue of that kind
+	 */
+	public static <T> VertexQueue<T> newQueue(String name) {
+		if (name.equals("lfpairing"))
+			return new LFPairingHeapQueue<T>();
+		if (name.equals("pairing"))
+			return new PairingHeapQueue<T>();
+		if (name.equals("skiplist"))
+			return new SkipListQueue<T>();
+		if (name.equals("lindenjonsson"))
+			return new LindenJonssonQueue<T>();
+		throw new IllegalArgumentException("Unknown queue: " + name);
+	}
+
+	public void run() {
+		Object[] nodes = graph.getNodes();
+		distances = new int[GraphNode.idBound(nodes)];
+		Arrays.fill(distances, Graph.UNREACHED);
+		// Bulk inserts and the keys of the round's mins; reused every round.
+		ArrayList<GraphNode<T>> inserts = new ArrayList<GraphNode<T>>();
+		int[] keys = new int[distances.length];
+
+		if (lazy) {
+			reached = new AtomicIntegerArray(distances.length);
+			if (batchQueue != null) {
+				pendingKeys = new AtomicIntegerArray(distances.length);
+				for (int i = 0; i < distances.length; i++)
+					pendingKeys.set(i, Integer.MAX_VALUE);
+			}
+			GraphNode<T> source = graph.getSource();
+			queue.insert(source, source.distance);
+			reached.set(source.id, QUEUED);
+		}
+		else if (batchQueue != null) {
+			for (Object nodeO : nodes) {
+				GraphNode<T> node = (GraphNode<T>)nodeO;
+				keys[inserts.size()] = node.distance;
+				inserts.add(node);
+			}
+			batchQueue.insertAll(inserts, keys);
+			inserts.clear();
+		}
+		else {
+			for (Object nodeO : nodes) {
+				GraphNode<T> node = (GraphNode<T>)nodeO;
+				queue.insert(node, node.distance);
+			}
+		}
+
+		ArrayList<DijkstraWorker> workers = new ArrayList<DijkstraWorker>(numWorkers);
+		CountDownLatch startLatch = new CountDownLatch(1);
+		while(workers.size() < numWorkers) {
+			DijkstraWorker worker = new DijkstraWorker(startLatch);
+			worker.start();
+			workers.add(worker);
+		}
+
+		int delta = batch ? minWeight(nodes) : 0;
+		// The workers are done with last round's mins once latch opens.
+		ArrayList<GraphNode<T>> mins = new ArrayList<GraphNode<T>>();
+		while (true) {
+			mins.clear();
+			if (batch)
+				batchQueue.deleteMinBatch(delta, mins);
+			else {
+				GraphNode<T> min = queue.deleteMin();
+				if (min != null)
+					mins.add(min);
+			}
+			if (mins.isEmpty())
+				break;
+			for (int i = 0; i < mins.size(); i++) {
+				GraphNode<T> min = mins.get(i);
+				keys[i] = queue.getKey(min);
+				if (debug)
+					System.out.println(min + " -> " + keys[i]);
+				distances[min.id] = GraphNode.reported(keys[i]);
+			}
+
+			CountDownLatch latch = new CountDownLatch(numWorkers);
+			CountDownLatch nextLatch = new CountDownLatch(1);
+			for(int i = 0; i < workers.size(); i++) {
+				DijkstraWorker worker = workers.get(i);
+				worker.modifyWork(i, mins, keys, latch, nextLatch);
+			}
+			startLatch.countDown();
+			startLatch = nextLatch;
+			try {
+				latch.await();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+
+			if (pendingKeys != null) {
+				for (DijkstraWorker worker : workers) {
+					inserts.addAll(worker.reached);
+					worker.reached.clear();
+				}
+				for (int i = 0; i < inserts.size(); i++)
+					keys[i] = pendingKeys.get(inserts.get(i).id);
+				batchQueue.insertAll(inserts, keys);
+				for (GraphNode<T> node : inserts)
+					reached.set(node.id, QUEUED);
+				inserts.clear();
+			}
+		}
+
+		for (DijkstraWorker worker : workers)
+			worker.kill();
+		startLatch.countDown();
+	}
+
+	/**
+	 * @return the distances of the last run, indexed by vertex id; vertices
+	 * that were never reached read Graph.UNREACHED
+	 */
+	public int[] getDistances() {
+		return distances;
+	}
+
+	public int getDistance(int id) {
+		return distances[id];
+	}
+
+	public int getDistance(GraphNode<T> node) {
+		return distances[node.id];
+	}
+
+	/**
+	 * @return the lightest edge weight in the graph, or 0 if it has no edges
+	 */
+	private int minWeight(Object[] nodes) {
+		int min = Integer.MAX_VALUE;
+		for (Object nodeO : nodes)
+			for (Object edgeO : ((GraphNode<T>)nodeO).edgesArray)
+				min = Math.min(min, ((GraphEdge<T>)edgeO).weight);
+		return min == Integer.MAX_VALUE ? 0 : Math.max(0, min);
+	}
+
+	/**
+	 * Offers node a new distance. Settled vertices never improve, so only
+	 * queued (or, in lazy mode, not yet queued) vertices get this far with
+	 * a lower key.
+	 */
+	private void relax(DijkstraWorker worker, GraphNode<T> node, int newDistance) {
+		if (lazy && reached.get(node.id) != QUEUED) {
+			if (pendingKeys != null) {
+				// Queued once the round is over, by whoever claims it now.
+				int current;
+				while (newDistance < (current = pendingKeys.get(node.id)))
+					if (pendingKeys.compareAndSet(node.id, current, newDistance))
+						break;
+				if (reached.get(node.id) == NEW && reached.compareAndSet(node.id, NEW, CLAIMED))
+					worker.reached.add(node);
+				return;
+			}
+			if (reached.compareAndSet(node.id, NEW, CLAIMED)) {
+				queue.insert(node, newDistance);
+				reached.set(node.id, QUEUED);
+				return;
+			}
+			// Another worker reached it first and is inserting it.
+			while (reached.get(node.id) != QUEUED)
+				Thread.yield();
+		}
+		if (newDistance < queue.getKey(node))
+			queue.decreaseKey(node, newDistance);
+	}
+
+	private class DijkstraWorker extends Thread {
+		private int offset;
+		private ArrayList<GraphNode<T>> mins;
+		private int[] keys;
+		private volatile boolean killed;
+		private CountDownLatch latch;
+		private CountDownLatch startLatch;
+		private CountDownLatch tmpLatch;
+		// Vertices this worker claimed this round, in lazy mode on a
+		// BatchVertexQueue; the coordinator queues them.
+		private final ArrayList<GraphNode<T>> reached = new ArrayList<GraphNode<T>>();
+
+		public DijkstraWorker(CountDownLatch nextLatch) {
+			this.startLatch = nextLatch;
+		}
+
+		public void modifyWork(int offset, ArrayList<GraphNode<T>> mins, int[] keys, CountDownLatch latch, CountDownLatch nextLatch) {
+			this.offset = offset;
+			this.mins = mins;
+			this.keys = keys;
+			this.latch = latch;
+			this.tmpLatch = nextLatch;
+		}
+
+		public void kill() {
+			killed = true;
+		}
+
+		public void run() {
+			while (!killed) {
+				try {
+					startLatch.await();
+				}
+				catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+				if (killed)
+					break;
+				for (int i = 0; i < mins.size(); i++) {
+					Object[] edges = mins.get(i).edgesArray;
+					for (int pos = offset; pos < edges.length; pos += numWorkers) {
+						GraphEdge<T> edge = (GraphEdge<T>)edges[pos];
+						relax(this, edge.rhs, keys[i] + edge.weight);
+					}
+				}
+				startLatch = tmpLatch;
+				latch.countDown();
+			}
+		}
+	}
+}
@@ -1,10 +1,13 @@
 import java.util.*;
-import java.util.Map.*;
 import java.io.*;
+import java.nio.IntBuffer;
 
 public class DijkstraSerial<T> {
 	private Graph<T> graph;
-	private HashMap<GraphNode<T>, Integer> distances;
+	// Settled distances by vertex id, filled in by run().
+	private int[] distances;
+	// Only queue vertices once they are reached.
+	private boolean lazy;
 	
 	public static void main(String[] args) throws IOException {
 		//System.out.println("Running with " + Integer.parseInt(args[0]) + " threads.");
@@ -12,46 +15,193 @@ public class DijkstraSerial<T> {
 		long time = System.nanoTime();
 		d.run();
 		System.out.println((System.nanoTime() - time)/1000000000.0);
-		//for(Entry<GraphNode<Integer>, Integer> entry : d.distances.entrySet())
-		//	System.out.println(entry.getKey().id + " -> " + entry.getValue());
 		for(int i = 0; i < 300; i++) {
-			boolean found = false;
-			for(Entry<GraphNode<Integer>, Integer> entry : d.distances.entrySet()) {
-				if (entry.getKey().id == i) {
-					found = true;
-					System.out.println(entry.getKey().toString() + " -> " + entry.getValue());
-				}
-			}
-			if (!found)
+			if (d.getDistance(i) == Graph.UNREACHED)
 				System.out.println("*** " + i + " missing! ***");
+			else
+				System.out.println("Node(" + i + ") -> " + d.getDistance(i));
 		}
 	}
 	
 	public DijkstraSerial(Graph<T> graph) {
 		this.graph = graph;
-		this.distances = new HashMap<GraphNode<T>, Integer>();
+	}
+	
+	/**
+	 * @param lazy queue only the source up front and every other vertex when
+	 * it is first reached, so unreachable vertices never enter the queue
+	 */
+	public DijkstraSerial(Graph<T> graph, boolean lazy) {
+		this(graph);
+		this.lazy = lazy;
 	}
 	
 	public void run() throws IOException {
+		if (graph instanceof CSRGraph) {
+			runCSR((CSRGraph)graph);
+			distances = ((CSRGraph)graph).getDistances();
+			return;
+		}
+		distances = new int[GraphNode.idBound(graph.getNodes())];
+		Arrays.fill(distances, Graph.UNREACHED);
 		PriorityQueue<GraphNode<T>> pq = new PriorityQueue<GraphNode<T>>();
-		for(Object nodeO : this.graph.getNodes())
-			pq.add((GraphNode<T>)nodeO);
+		if (lazy) {
+			// inHeap now means queued: a popped vertex never improves again,
+			// so anything not queued that improves is being reached first.
+			for(Object nodeO : this.graph.getNodes())
+				((GraphNode<T>)nodeO).inHeap = false;
+			graph.getSource().inHeap = true;
+			pq.add(graph.getSource());
+		}
+		else {
+			for(Object nodeO : this.graph.getNodes())
+				pq.add((GraphNode<T>)nodeO);
+		}
 		while (!pq.isEmpty()) {
 			GraphNode<T> min = pq.poll();
 			//System.out.println(min);
 			int distToMin = min.distance;
-			distances.put(min, distToMin);
+			distances[min.id] = GraphNode.reported(distToMin);
+			if (lazy)
+				min.inHeap = false;
 			for(Object edgeO : min.edgesArray) {
 				GraphEdge<T> edge = (GraphEdge<T>)edgeO;
-				if (!edge.rhs.inHeap)
+				if (!lazy && !edge.rhs.inHeap)
 					continue;
 				int newDistance =  distToMin + edge.weight;
 				if (newDistance < edge.rhs.distance) {
-					pq.remove(edge.rhs);
+					if (!lazy || edge.rhs.inHeap)
+						pq.remove(edge.rhs);
 					edge.rhs.distance = newDistance;
+					edge.rhs.inHeap = true;
 					pq.add(edge.rhs);
 				}
 			}
 		}
 	}
+	
+	/**
+	 * @return the distances of the last run, indexed by vertex id; vertices
+	 * that were never reached read Graph.UNREACHED
+	 */
+	public int[] getDistances() {
+		return distances;
+	}
+	
+	public int getDistance(int id) {
+		return distances[id];
+	}
+	
+	public int getDistance(GraphNode<T> node) {
+		return distances[node.id];
+	}
+	
+	/**
+	 * Runs directly on the CSR buffers with an indexed binary heap of vertex
+	 * numbers. Results are left in csr.distance.
+	 */
+	private void runCSR(CSRGraph csr) {
+		IntBuffer offsets = csr.offsets, targets = csr.targets, weights = csr.weights;
+		int[] dist = csr.distance;
+		IndexedHeap pq = new IndexedHeap(dist);
+		if (lazy)
+			pq.add(csr.source);
+		else {
+			for (int v = 0; v < csr.numNodes; v++)
+				pq.add(v);
+		}
+		while (pq.size > 0) {
+			int min = pq.poll();
+			int distToMin = dist[min];
+			for (int e = offsets.get(min); e < offsets.get(min + 1); e++) {
+				int target = targets.get(e);
+				if (!lazy && !pq.contains(target))
+					continue;
+				int newDistance = distToMin + weights.get(e);
+				if (newDistance < dist[target]) {
+					dist[target] = newDistance;
+					// Popped vertices never improve, so this is a first reach.
+					if (!pq.contains(target))
+						pq.add(target);
+					else
+						pq.decreased(target);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Binary min-heap of vertex numbers keyed on an external distance array.
+	 */
+	private static class IndexedHeap {
+		private final int[] key;
+		private final int[] heap;
+		private final int[] pos; // -1 when not in the heap
+		public int size;
+		
+		public IndexedHeap(int[] key) {
+			this.key = key;
+			this.heap = new int[key.length];
+			this.pos = new int[key.length];
+			Arrays.fill(pos, -1);
+		}
+		
+		public boolean contains(int v) {
+			return pos[v] >= 0;
+		}
+		
+		public void add(int v) {
+			heap[size] = v;
+			pos[v] = size;
+			siftUp(size++);
+		}
+		
+		public int poll() {
+			int min = heap[0];
+			pos[min] = -1;
+			if (--size > 0) {
+				heap[0] = heap[size];
+				pos[heap[0]] = 0;
+				siftDown(0);
+			}
+			return min;
+		}
+		
+		// Call after lowering key[v].
+		public void decreased(int v) {
+			siftUp(pos[v]);
+		}
+		
+		private void siftUp(int i) {
+			int v = heap[i];
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (key[heap[parent]] <= key[v])
+					break;
+				heap[i] = heap[parent];
+				pos[heap[i]] = i;
+				i = parent;
+			}
+			heap[i] = v;
+			pos[v] = i;
+		}
+		
+		private void siftDown(int i) {
+			int v = heap[i];
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size)
+					break;
+				if (child + 1 < size && key[heap[child + 1]] < key[heap[child]])
+					child++;
+				if (key[v] <= key[heap[child]])
+					break;
+				heap[i] = heap[child];
+				pos[heap[i]] = i;
+				i = child;
+			}
+			heap[i] = v;
+			pos[v] = i;
+		}
+	}
 }
@@ -4,6 +4,11 @@
  * @author Charles Newton
  */
 public interface Graph<T> {
+	/**
+	 * Distance an engine reports for a vertex it never settled.
+	 */
+	public static final int UNREACHED = Integer.MAX_VALUE;
+
 	public Object[] getNodes();
 	public GraphNode<T> getSource();
 
@@ -1,5 +1,6 @@
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class GraphNode<T> implements Comparable<GraphNode<T>> {
@@ -10,6 +11,12 @@ public class GraphNode<T> implements Comparable<GraphNode<T>> {
 	public volatile int distance; // LFPairingHeap should /not/ change this field!
 	public final AtomicReference<PHNode<T>> phNode;
 	public volatile boolean inHeap;
+	public final AtomicBoolean queued; // Claimed by DijkstraConcurrent before (re)inserting.
+	// The graphs start every vertex but the source at Integer.MAX_VALUE -
+	// (maxWeight + 2), leaving room for one more edge so relaxing out of it
+	// can't overflow. That is above this bound for any weight below 2^30,
+	// and no real path comes near it.
+	private static final int UNSET = Integer.MAX_VALUE / 2;
 	
 	public GraphNode(T value, int id, int expectedSize) {
 		this.id = id;
@@ -17,6 +24,7 @@ public class GraphNode<T> implements Comparable<GraphNode<T>> {
 		edges = new ArrayList<GraphEdge<T>>(expectedSize);
 		inHeap = true;
 		phNode = new AtomicReference<PHNode<T>>();
+		queued = new AtomicBoolean(false);
 	}
 
 	public void addConnection(GraphNode<T> rhs, int weight) {
@@ -29,6 +37,26 @@ public class GraphNode<T> implements Comparable<GraphNode<T>> {
 		edges = null;
 	}
 	
+	/**
+	 * @return one more than the largest id among nodes, i.e. the length of an
+	 * array indexed by vertex id
+	 */
+	public static int idBound(Object[] nodes) {
+		int bound = 0;
+		for (Object nodeO : nodes)
+			bound = Math.max(bound, ((GraphNode<?>)nodeO).id + 1);
+		return bound;
+	}
+	
+	/**
+	 * @return distance as an engine should report it: Graph.UNREACHED if it
+	 * is still the initial distance the graph gave the vertex, or an edge
+	 * past it
+	 */
+	public static int reported(int distance) {
+		return distance >= UNSET ? Graph.UNREACHED : distance;
+	}
+	
 	public String toString() {
 		return "Node(" + id + ")";
 	}
@@ -0,0 +1,81 @@
+import java.util.Arrays;
+
+/**
+ * Open addressing int to int hash map (linear probing). Used to remap sparse
+ * vertex ids onto dense ones without boxing.
+ */
+public class IntIntHashMap {
+	private int[] keys;
+	private int[] values;
+	private boolean[] used;
+	private int size;
+	private int mask;
+
+	public IntIntHashMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+		keys = new int[capacity];
+		values = new int[capacity];
+		used = new boolean[capacity];
+		mask = capacity - 1;
+	}
+
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * @return the value stored for key, or missing if there is none
+	 */
+	public int get(int key, int missing) {
+		for (int i = hash(key) & mask; used[i]; i = (i + 1) & mask)
+			if (keys[i] == key)
+				return values[i];
+		return missing;
+	}
+
+	/**
+	 * Returns the value stored for key, storing value first if key is new.
+	 */
+	public int putIfAbsent(int key, int value) {
+		int i = hash(key) & mask;
+		for (; used[i]; i = (i + 1) & mask)
+			if (keys[i] == key)
+				return values[i];
+		used[i] = true;
+		keys[i] = key;
+		values[i] = value;
+		if (++size * 2 > keys.length)
+			grow();
+		return value;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private void grow() {
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		boolean[] oldUsed = used;
+		keys = new int[oldKeys.length * 2];
+		values = new int[oldKeys.length * 2];
+		used = new boolean[oldKeys.length * 2];
+		mask = keys.length - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (!oldUsed[j])
+				continue;
+			int i = hash(oldKeys[j]) & mask;
+			while (used[i])
+				i = (i + 1) & mask;
+			used[i] = true;
+			keys[i] = oldKeys[j];
+			values[i] = oldValues[j];
+		}
+	}
+
+	public void clear() {
+		Arrays.fill(used, false);
+		size = 0;
+	}
+}
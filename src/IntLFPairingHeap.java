@@ -0,0 +1,389 @@
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A concurrent pairing heap of int keys on int handles 0..capacity-1. Unlike
+ * LFPairingHeap it is not tied to GraphNode: all per-handle state lives in
+ * parallel AtomicIntegerArrays and every link is an int index updated by CAS,
+ * so nothing is boxed and the hot insert()/decreaseKey() path allocates
+ * nothing once the cell arena has warmed up.
+ *
+ * Children hang off their parent as a Treiber stack of cells. A cell names a
+ * handle and the next cell; a handle's current cell is recorded in cell[], so
+ * decreaseKey() cuts a node in O(1) by swinging cell[] away from the old cell
+ * (which stays behind as a tombstone) and relinking the handle elsewhere.
+ * deleteMin() seals the root's child list, pairs up the live children in two
+ * passes and swaps the result in with one CAS on the stamped root. If that
+ * CAS loses, the merged subheap goes back as the root's only child. A new
+ * root's list is sealed from just before its root CAS until the old root
+ * hangs under it, so the old root is never out of reach.
+ *
+ * The heap is not lock-free: a sealed list works like a lock. Other
+ * deleteMin() calls on the same root, and inserts that would hang off of it,
+ * wait until the seal is lifted, so a thread stalled while holding one
+ * stalls them too. decreaseKey() on a node that is being moved waits for it
+ * to land, as the mover may have placed it by its old key.
+ *
+ * Cells are recycled through small per-thread pools; a thread that frees more
+ * than it uses hands whole batches to the other threads.
+ */
+public class IntLFPairingHeap {
+	public static final int NONE = -1;
+	// Child list states: EMPTY, a cell index, or SEALED by a deleteMin() that
+	// is taking the list.
+	private static final int EMPTY = -1;
+	private static final int SEALED = -2;
+	private static final int CHUNK_BITS = 16;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int BATCH = 256;
+
+	private final int capacity;
+	private final AtomicIntegerArray key;
+	private final AtomicIntegerArray parent;
+	// Head cell of each handle's child list.
+	private final AtomicIntegerArray child;
+	// Current cell of each handle; NONE while it is the root, in transit
+	// between two places in the heap, or not in the heap at all.
+	private final AtomicIntegerArray cell;
+	private final AtomicIntegerArray inHeap;
+	// Stamp in the high half, root handle in the low half.
+	private final AtomicLong root;
+	private final AtomicInteger size;
+
+	// Cell i is (handle, next) at [2*j, 2*j+1] of chunk i >>> CHUNK_BITS.
+	private final AtomicReferenceArray<int[]> cellChunks;
+	private final AtomicInteger nextCell;
+	private final ConcurrentLinkedQueue<int[]> freeBatches;
+	private final ThreadLocal<Scratch> scratch;
+
+	private static class Scratch {
+		int[] free = new int[2 * BATCH];
+		int freeCount;
+		int[] handles = new int[64];
+	}
+
+	/**
+	 * Creates an empty heap for handles 0..capacity-1.
+	 */
+	public IntLFPairingHeap(int capacity) {
+		this.capacity = capacity;
+		key = new AtomicIntegerArray(capacity);
+		parent = new AtomicIntegerArray(capacity);
+		child = new AtomicIntegerArray(capacity);
+		cell = new AtomicIntegerArray(capacity);
+		inHeap = new AtomicIntegerArray(capacity);
+		root = new AtomicLong(pack(NONE, 0));
+		size = new AtomicInteger(0);
+		cellChunks = new AtomicReferenceArray<int[]>(1 << (31 - CHUNK_BITS));
+		nextCell = new AtomicInteger(0);
+		freeBatches = new ConcurrentLinkedQueue<int[]>();
+		scratch = new ThreadLocal<Scratch>() {
+			protected Scratch initialValue() {
+				return new Scratch();
+			}
+		};
+	}
+
+	private static long pack(int handle, int stamp) {
+		return ((long)stamp << 32) | (handle & 0xffffffffL);
+	}
+
+	private static int handleOf(long packed) {
+		return (int)packed;
+	}
+
+	private static int stampOf(long packed) {
+		return (int)(packed >>> 32);
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	public int size() {
+		return size.get();
+	}
+
+	public boolean contains(int handle) {
+		return inHeap.get(handle) != 0;
+	}
+
+	public int getKey(int handle) {
+		return key.get(handle);
+	}
+
+	/**
+	 * @return the handle with the smallest key, or NONE if the heap is empty
+	 */
+	public int peekMin() {
+		return handleOf(root.get());
+	}
+
+	/**
+	 * Inserts handle with the given key. The handle must not already be in the
+	 * heap.
+	 */
+	public void insert(int handle, int newKey) {
+		if (inHeap.getAndSet(handle, 1) != 0)
+			throw new IllegalStateException("Handle " + handle + " is already in the heap");
+		key.set(handle, newKey);
+		parent.set(handle, NONE);
+		cell.set(handle, NONE);
+		child.set(handle, EMPTY);
+		insertSubheap(handle);
+		size.getAndIncrement();
+	}
+
+	/**
+	 * Lowers the key of handle. Does nothing if handle is not in the heap or
+	 * newKey is not smaller than its current key.
+	 */
+	public void decreaseKey(int handle, int newKey) {
+		if (inHeap.get(handle) == 0)
+			return;
+		int oldKey;
+		do {
+			oldKey = key.get(handle);
+			if (newKey >= oldKey)
+				return;
+		} while (!key.compareAndSet(handle, oldKey, newKey));
+
+		while (true) {
+			int c = cell.get(handle);
+			if (c == NONE) {
+				// The root, or just popped: nothing above it.
+				if (handleOf(root.get()) == handle || inHeap.get(handle) == 0)
+					return;
+				// In transit. Whoever is moving it compared the old key, so check
+				// again once it is in place.
+				Thread.yield();
+				continue;
+			}
+			int p = parent.get(handle);
+			// Still no smaller than its parent.
+			if (p == NONE || key.get(p) <= newKey)
+				return;
+			if (cell.compareAndSet(handle, c, NONE))
+				break;
+		}
+		// The old cell stays behind in the parent's list as a tombstone.
+		parent.set(handle, NONE);
+		insertSubheap(handle);
+	}
+
+	/**
+	 * Pops the handle with the smallest key.
+	 *
+	 * @return the popped handle, or NONE if the heap is empty
+	 */
+	public int deleteMin() {
+		Scratch s = scratch.get();
+		while (true) {
+			long r = root.get();
+			int min = handleOf(r);
+			if (min == NONE)
+				return NONE;
+
+			// Take the child list. If another deleteMin() already has it, wait for
+			// it to either pop min or give the list back.
+			int head = child.get(min);
+			if (head == SEALED || !child.compareAndSet(min, head, SEALED)) {
+				Thread.yield();
+				continue;
+			}
+			int newRoot = merge(head, s);
+
+			if (root.compareAndSet(r, pack(newRoot, stampOf(r) + 1))) {
+				inHeap.set(min, 0);
+				size.getAndDecrement();
+				return min;
+			}
+			// Nobody else can have popped min while we held its list. Hang the
+			// merged subheap back under it, so none of it is ever out of reach.
+			unseal(min, newRoot, EMPTY);
+		}
+	}
+
+	/**
+	 * Links handle, which must be detached (no cell, no parent), into the heap
+	 * together with everything below it.
+	 */
+	private void insertSubheap(int handle) {
+		while (handle != NONE) {
+			long r = root.get();
+			int rootHandle = handleOf(r);
+
+			// Empty heap: handle becomes the root.
+			if (rootHandle == NONE) {
+				if (root.compareAndSet(r, pack(handle, stampOf(r) + 1)))
+					return;
+				continue;
+			}
+
+			// Hang it off of the root.
+			if (key.get(handle) >= key.get(rootHandle)) {
+				if (attach(rootHandle, handle))
+					return;
+				continue;
+			}
+
+			// Make it the new root and hang the old root off of it. Its list stays
+			// sealed until then, so a deleteMin() of the new root waits for the
+			// old root to be in place instead of losing it. A stale deleteMin()
+			// may still hold the seal from when handle was a root before.
+			int head;
+			while ((head = child.get(handle)) == SEALED || !child.compareAndSet(handle, head, SEALED))
+				Thread.yield();
+			if (!root.compareAndSet(r, pack(handle, stampOf(r) + 1))) {
+				child.set(handle, head);
+				continue;
+			}
+			unseal(handle, rootHandle, head);
+			return;
+		}
+	}
+
+	/**
+	 * Lifts the seal this thread holds on p's list, putting back rest with sub
+	 * (a detached handle, or NONE) pushed on front.
+	 */
+	private void unseal(int p, int sub, int rest) {
+		if (sub == NONE) {
+			child.set(p, rest);
+			return;
+		}
+		int c = allocCell(sub);
+		parent.set(sub, p);
+		cell.set(sub, c);
+		setCellNext(c, rest);
+		child.set(p, c);
+	}
+
+	/**
+	 * Pushes a fresh cell for c onto p's child list.
+	 *
+	 * @return false if p's list is sealed. c is then detached again, unless
+	 * a decreaseKey() grabbed it in the meantime, in which case it is its job
+	 * to relink c and this returns true.
+	 */
+	private boolean attach(int p, int c) {
+		int newCell = allocCell(c);
+		parent.set(c, p);
+		cell.set(c, newCell);
+		if (push(p, newCell))
+			return true;
+		if (!cell.compareAndSet(c, newCell, NONE))
+			return true;
+		parent.set(c, NONE);
+		freeCell(scratch.get(), newCell);
+		return false;
+	}
+
+	private boolean push(int p, int c) {
+		while (true) {
+			int head = child.get(p);
+			if (head == SEALED)
+				return false;
+			setCellNext(c, head);
+			if (child.compareAndSet(p, head, c))
+				return true;
+		}
+	}
+
+	/**
+	 * Claims the live children in a (sealed) child list and pairs them: first
+	 * left to right in pairs, then folding the winners right to left.
+	 *
+	 * @return the root of the merged subheap, or NONE
+	 */
+	private int merge(int head, Scratch s) {
+		int n = 0;
+		for (int c = head; c != EMPTY; ) {
+			int h = cellHandle(c);
+			int next = cellNext(c);
+			if (cell.get(h) == c && cell.compareAndSet(h, c, NONE)) {
+				parent.set(h, NONE);
+				if (n == s.handles.length)
+					s.handles = java.util.Arrays.copyOf(s.handles, n * 2);
+				s.handles[n++] = h;
+			}
+			freeCell(s, c);
+			c = next;
+		}
+		if (n == 0)
+			return NONE;
+
+		int[] handles = s.handles;
+		int pairs = 0;
+		for (int i = 0; i + 1 < n; i += 2)
+			handles[pairs++] = link(handles[i], handles[i + 1]);
+		if ((n & 1) == 1)
+			handles[pairs++] = handles[n - 1];
+		int result = handles[pairs - 1];
+		for (int i = pairs - 2; i >= 0; i--)
+			result = link(handles[i], result);
+		return result;
+	}
+
+	/**
+	 * Makes the larger of two detached handles a child of the smaller.
+	 */
+	private int link(int a, int b) {
+		if (key.get(b) < key.get(a)) {
+			int t = a;
+			a = b;
+			b = t;
+		}
+		// A stale deleteMin() that saw a as the root may still hold a seal on
+		// its list; it lifts it as soon as its root CAS fails.
+		while (!attach(a, b))
+			Thread.yield();
+		return a;
+	}
+
+	private int allocCell(int handle) {
+		Scratch s = scratch.get();
+		if (s.freeCount == 0) {
+			int[] batch = freeBatches.poll();
+			if (batch != null) {
+				System.arraycopy(batch, 0, s.free, 0, batch.length);
+				s.freeCount = batch.length;
+			}
+		}
+		int c;
+		if (s.freeCount > 0)
+			c = s.free[--s.freeCount];
+		else {
+			c = nextCell.getAndIncrement();
+			if (c < 0)
+				throw new IllegalStateException("Cell arena exhausted");
+			int chunk = c >>> CHUNK_BITS;
+			if (cellChunks.get(chunk) == null)
+				cellChunks.compareAndSet(chunk, null, new int[2 * CHUNK_SIZE]);
+		}
+		cellChunks.get(c >>> CHUNK_BITS)[2 * (c & (CHUNK_SIZE - 1))] = handle;
+		return c;
+	}
+
+	private void freeCell(Scratch s, int c) {
+		if (s.freeCount == s.free.length) {
+			int[] batch = new int[BATCH];
+			s.freeCount -= BATCH;
+			System.arraycopy(s.free, s.freeCount, batch, 0, BATCH);
+			freeBatches.add(batch);
+		}
+		s.free[s.freeCount++] = c;
+	}
+
+	private int cellHandle(int c) {
+		return cellChunks.get(c >>> CHUNK_BITS)[2 * (c & (CHUNK_SIZE - 1))];
+	}
+
+	private int cellNext(int c) {
+		return cellChunks.get(c >>> CHUNK_BITS)[2 * (c & (CHUNK_SIZE - 1)) + 1];
+	}
+
+	private void setCellNext(int c, int next) {
+		cellChunks.get(c >>> CHUNK_BITS)[2 * (c & (CHUNK_SIZE - 1)) + 1] = next;
+	}
+}
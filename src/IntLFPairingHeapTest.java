@@ -0,0 +1,208 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Tester for IntLFPairingHeap. Same checks as LFPairingHeapTest: ordered pops
+ * (also after decreaseKey) when run serially, and every handle popped exactly
+ * once when producers, consumers and decreaseKey run concurrently. Heap order
+ * must also survive keys being lowered while pops move nodes around.
+ */
+public class IntLFPairingHeapTest {
+
+	private final int testSize = 100000;
+	private final int numThreads = 4;
+
+	public static void main(String[] args) throws InterruptedException {
+		IntLFPairingHeapTest test = new IntLFPairingHeapTest();
+		test.testSerial();
+		test.testConcurrentDeleteMin();
+		test.testConcurrentDecreaseKey();
+		test.testConcurrentOrder();
+	}
+
+	public boolean assertEquals(String title, boolean test, boolean result)
+	{
+		if(test != result)
+			System.out.println(title+": failed!");
+		return test == result;
+	}
+
+	public void testSerial() {
+		System.out.println("Test Serial");
+		IntLFPairingHeap heap = new IntLFPairingHeap(testSize);
+		for(int i = 0; i < testSize; i++)
+			heap.insert(i, (int)(Integer.MAX_VALUE * Rnd.dbl()));
+		for(int i = 0; i < testSize; i += 3)
+			heap.decreaseKey(i, heap.getKey(i) / 2);
+		// Pop and reinsert some so handles get reused.
+		for(int i = 0; i < testSize / 10; i++) {
+			int min = heap.deleteMin();
+			heap.insert(min, heap.getKey(min) + (int)(1000 * Rnd.dbl()));
+		}
+
+		int last = Integer.MIN_VALUE;
+		int popped = 0;
+		int min;
+		while ((min = heap.deleteMin()) != IntLFPairingHeap.NONE) {
+			if (!assertEquals("Order", true, heap.getKey(min) >= last))
+				break;
+			last = heap.getKey(min);
+			popped++;
+		}
+		assertEquals("Count", true, popped == testSize);
+		assertEquals("Empty", true, heap.size() == 0);
+	}
+
+	/**
+	 * Producers insert while consumers pop; every handle must be popped once.
+	 */
+	public void testConcurrentDeleteMin() throws InterruptedException {
+		System.out.println("Test Concurrent DeleteMin");
+		final IntLFPairingHeap heap = new IntLFPairingHeap(testSize * numThreads);
+		final AtomicIntegerArray seen = new AtomicIntegerArray(testSize * numThreads);
+		final AtomicInteger remaining = new AtomicInteger(testSize * numThreads);
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+
+		for(int t = 0; t < numThreads; t++) {
+			final int offset = t * testSize;
+			threads.add(new Thread() {
+				public void run() {
+					for(int i = 0; i < testSize; i++)
+						heap.insert(offset + i, (int)(Integer.MAX_VALUE * ThreadLocalRandom.current().nextDouble()));
+				}
+			});
+			threads.add(new Thread() {
+				public void run() {
+					while (remaining.get() > 0) {
+						int min = heap.deleteMin();
+						if (min == IntLFPairingHeap.NONE)
+							continue;
+						seen.incrementAndGet(min);
+						remaining.decrementAndGet();
+					}
+				}
+			});
+		}
+		for(Thread thread : threads)
+			thread.start();
+		for(Thread thread : threads)
+			thread.join();
+
+		for(int i = 0; i < seen.length(); i++)
+			if (!assertEquals("Popped once", true, seen.get(i) == 1)) {
+				System.out.println(i + " popped " + seen.get(i) + " times");
+				break;
+			}
+		assertEquals("Empty", true, heap.deleteMin() == IntLFPairingHeap.NONE);
+	}
+
+	/**
+	 * Consumers pop while other threads decrease keys of handles still in the
+	 * heap; every handle must still be popped once.
+	 */
+	public void testConcurrentDecreaseKey() throws InterruptedException {
+		System.out.println("Test Concurrent DecreaseKey");
+		final IntLFPairingHeap heap = new IntLFPairingHeap(testSize);
+		final AtomicIntegerArray seen = new AtomicIntegerArray(testSize);
+		final AtomicInteger remaining = new AtomicInteger(testSize);
+		for(int i = 0; i < testSize; i++)
+			heap.insert(i, Integer.MAX_VALUE / 2 + (int)(Integer.MAX_VALUE / 2 * Rnd.dbl()));
+
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+		for(int t = 0; t < numThreads; t++) {
+			threads.add(new Thread() {
+				public void run() {
+					ThreadLocalRandom r = ThreadLocalRandom.current();
+					while (remaining.get() > 0) {
+						int handle = r.nextInt(testSize);
+						int current = heap.getKey(handle);
+						if (current > 0)
+							heap.decreaseKey(handle, r.nextInt(current));
+					}
+				}
+			});
+			threads.add(new Thread() {
+				public void run() {
+					while (remaining.get() > 0) {
+						int min = heap.deleteMin();
+						if (min == IntLFPairingHeap.NONE)
+							continue;
+						seen.incrementAndGet(min);
+						remaining.decrementAndGet();
+					}
+				}
+			});
+		}
+		for(Thread thread : threads)
+			thread.start();
+		for(Thread thread : threads)
+			thread.join();
+
+		for(int i = 0; i < seen.length(); i++)
+			if (!assertEquals("Popped once", true, seen.get(i) == 1)) {
+				System.out.println(i + " popped " + seen.get(i) + " times");
+				break;
+			}
+		assertEquals("Empty", true, heap.deleteMin() == IntLFPairingHeap.NONE);
+	}
+
+	/**
+	 * Consumers pop half the heap while other threads decrease keys, many of
+	 * them on nodes that a pop is relinking at that moment. What is left must
+	 * then come out in order, with every handle once.
+	 */
+	public void testConcurrentOrder() throws InterruptedException {
+		System.out.println("Test Concurrent Order");
+		final IntLFPairingHeap heap = new IntLFPairingHeap(testSize);
+		final AtomicIntegerArray seen = new AtomicIntegerArray(testSize);
+		final AtomicInteger toPop = new AtomicInteger(testSize / 2);
+		for(int i = 0; i < testSize; i++)
+			heap.insert(i, Integer.MAX_VALUE / 2 + (int)(Integer.MAX_VALUE / 2 * Rnd.dbl()));
+
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+		for(int t = 0; t < numThreads; t++) {
+			threads.add(new Thread() {
+				public void run() {
+					ThreadLocalRandom r = ThreadLocalRandom.current();
+					while (toPop.get() > 0) {
+						int handle = r.nextInt(testSize);
+						int current = heap.getKey(handle);
+						if (current > 0)
+							heap.decreaseKey(handle, current - 1 - r.nextInt(Math.min(current, 1 << 20)));
+					}
+				}
+			});
+			threads.add(new Thread() {
+				public void run() {
+					while (toPop.getAndDecrement() > 0) {
+						int min = heap.deleteMin();
+						if (min != IntLFPairingHeap.NONE)
+							seen.incrementAndGet(min);
+					}
+				}
+			});
+		}
+		for(Thread thread : threads)
+			thread.start();
+		for(Thread thread : threads)
+			thread.join();
+
+		int last = Integer.MIN_VALUE;
+		boolean ordered = true;
+		int min;
+		while ((min = heap.deleteMin()) != IntLFPairingHeap.NONE) {
+			if (ordered && !assertEquals("Order", true, heap.getKey(min) >= last)) {
+				System.out.println(min + " popped with key " + heap.getKey(min) + " after " + last);
+				ordered = false;
+			}
+			last = heap.getKey(min);
+			seen.incrementAndGet(min);
+		}
+		for(int i = 0; i < seen.length(); i++)
+			if (!assertEquals("Popped once", true, seen.get(i) == 1)) {
+				System.out.println(i + " popped " + seen.get(i) + " times");
+				break;
+			}
+	}
+}
@@ -3,8 +3,33 @@ import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
 
 /**
- * A lock-free pairing heap of weightings on a type T. Right now, only
- * decreaseKey() and insert() are lock-free.
+ * A concurrent pairing heap of weightings on a type T. insert(), decreaseKey()
+ * and deleteMin() all publish root changes through the write descriptor, so
+ * any number of threads may insert and pop concurrently.
+ *
+ * Children hang off of their parent as an intrusive Treiber stack linked
+ * through PHNode.next. A child is live while its GraphNode still points at
+ * it; decreaseKey() cuts a node in O(1) by claiming it (CAS on its parent
+ * field) and relinking a copy, leaving the old PHNode behind as a tombstone
+ * that the next deleteMin() over that list skips.
+ *
+ * The heap is not lock-free. deleteMin() seals the root's child list while
+ * it merges the children, and the seal works like a lock: other pops of
+ * that root, inserts that would hang off of it and merges into it all wait
+ * until it is lifted, so a thread stalled while holding one stalls them
+ * too. If the pop loses its root CAS, the merged subheap goes back into
+ * the sealed list before the seal is lifted, so it never drops out of
+ * sight. decreaseKey() waits for a node that is being relinked to land.
+ *
+ * The heap keeps an index from node id to node, so it can be used as an
+ * addressable priority queue: search() and decreaseKey() by id are O(1). Ids
+ * must be non-negative and unique among the nodes in the heap at any one
+ * time; the index grows with the largest id, so they should also be dense.
+ *
+ * A recycling heap reuses its descriptors and the PHNode copies it makes
+ * (see Recycler) instead of leaving them to the garbage collector. Copies
+ * it has let go of may then be handed out again, so callers should read
+ * keys with getKey() rather than through a PHNode they looked up earlier.
  * 
  * @author Charles Newton
  */
@@ -12,9 +37,61 @@ public class LFPairingHeap<T> {
 	//public volatile PHNode<T> root;
 	private final AtomicStampedReference<WriteDescriptor> descriptor;
 	private final AtomicInteger size;
+	// id -> node in the heap. The id's high bits pick a lazily allocated
+	// chunk, so lookups are O(1) for any int id without boxing. The table of
+	// chunks only grows as far as the largest id seen; chunks are never
+	// replaced, so a bigger table just copies the references over.
+	private static final int INDEX_BITS = 10;
+	private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+	private volatile AtomicReferenceArray<AtomicReferenceArray<GraphNode<T>>> index;
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<PHNode, GraphNode> PARENT =
+		AtomicReferenceFieldUpdater.newUpdater(PHNode.class, GraphNode.class, "parent");
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<PHNode, PHNode> NEXT =
+		AtomicReferenceFieldUpdater.newUpdater(PHNode.class, PHNode.class, "next");
+	// Child list head of a root that a deleteMin() is taking apart.
+	private final PHNode<T> sealed = new PHNode<T>();
+	// Front end for insert() and decreaseKey() in flat combining mode, else null.
+	private final Combiner combiner;
+	// How deleteMin() links up the popped root's children.
+	private final Pairing pairing;
+	// Pools for descriptors and copies in recycling mode, else null.
+	private final Recycler recycler;
+	// Kinds of pooled objects.
+	private static final int EMPTY = 0;
+	private static final int NEW_ROOT = 1;
+	private static final int NODE = 2;
+	// Free objects move between threads in chunks of this many.
+	private static final int CHUNK = 256;
+	// Calls between attempts to move the epoch on.
+	private static final int ADVANCE_EVERY = 64;
+	private static final long IDLE = -1;
 	
+	/**
+	 * Ways of merging the popped root's children back into one heap. The
+	 * child list is newest first.
+	 */
+	public enum Pairing {
+	  /** Link pairs left to right, then fold the winners right to left. */
+	  TWO_PASS,
+	  /** Link pairs left to right, over and over, until one tree is left. */
+	  MULTIPASS,
+	  /** Link pairs left to right, then fold the winners left to right. */
+	  FRONT_TO_BACK,
+	  /**
+	   * Multipass the leading run of childless nodes (the single nodes
+	   * inserted since the list was last taken apart) into one tree first,
+	   * then two-pass the result with the rest, in the spirit of Stasko and
+	   * Vitter's auxiliary two-pass heap.
+	   */
+	  AUXILIARY_TWO_PASS
+	}
+	
+	// Fields are not final so that a recycler can reuse descriptors; they
+	// are only written while the descriptor is unpublished.
 	private abstract class WriteDescriptor {
-	  public final PHNode<T> root;
+	  public PHNode<T> root;
 	  private volatile boolean pending;
 
 	  private WriteDescriptor(PHNode<T> root) {
@@ -32,22 +109,9 @@ public class LFPairingHeap<T> {
 	  }
 	}
 	
-	private class WriteDescriptorUpdateRoot extends WriteDescriptor {
-	  private final PHNode<T> oldRoot;
-	  
-	  public WriteDescriptorUpdateRoot(PHNode<T> oldRoot, PHNode<T> newRoot) {
-		super(newRoot);
-		this.oldRoot = oldRoot;
-	  }
-
-	  public void executeThis() {
-	    root.graphNode.phNode.compareAndSet(oldRoot, root);
-	  }
-	}
-
 	private class WriteDescriptorNewRoot extends WriteDescriptor {
-	  private final PHNode<T> newLocForOldRoot;
-	  private final PHNode<T> oldRoot;
+	  private PHNode<T> newLocForOldRoot;
+	  private PHNode<T> oldRoot;
 	  
 	  public WriteDescriptorNewRoot(PHNode<T> newRoot, PHNode<T> oldRoot, PHNode<T> newLocForOldRoot) {
 	    super(newRoot);
@@ -71,19 +135,402 @@ public class LFPairingHeap<T> {
 	  }
 	}
 	
+	/**
+	 * A pending insert() (node set) or decreaseKey() (key set) of one thread.
+	 */
+	private final class Slot {
+	  private Slot next;
+	  private PHNode<T> node;
+	  private GraphNode<T> key;
+	  private int value;
+	  private volatile boolean pending;
+	}
+
+	private final class Combiner {
+	  private final AtomicBoolean lock = new AtomicBoolean(false);
+	  // Every thread that has used the heap, newest first; slots are never
+	  // unlinked.
+	  private final AtomicReference<Slot> slots = new AtomicReference<Slot>();
+	  private final ThreadLocal<Slot> mine = new ThreadLocal<Slot>() {
+	    protected Slot initialValue() {
+	      Slot slot = new Slot();
+	      do {
+	        slot.next = slots.get();
+	      } while (!slots.compareAndSet(slot.next, slot));
+	      return slot;
+	    }
+	  };
+	  // Only touched by the thread holding the lock.
+	  private final ArrayList<Slot> batch = new ArrayList<Slot>();
+	  private final ArrayList<PHNode<T>> inserts = new ArrayList<PHNode<T>>();
+
+	  /**
+	   * Publishes the call and waits until some combiner, possibly this
+	   * thread, has applied it.
+	   */
+	  public void apply(PHNode<T> node, GraphNode<T> key, int value) {
+	    Slot slot = mine.get();
+	    slot.node = node;
+	    slot.key = key;
+	    slot.value = value;
+	    slot.pending = true;
+	    while (true) {
+	      if (!lock.get() && lock.compareAndSet(false, true)) {
+	        try {
+	          combine();
+	        } finally {
+	          lock.set(false);
+	        }
+	        if (!slot.pending)
+	          return;
+	      }
+	      while (slot.pending && lock.get())
+	        Thread.yield();
+	      if (!slot.pending)
+	        return;
+	    }
+	  }
+
+	  /**
+	   * Applies every pending call: the inserts as one batch first, then the
+	   * decreaseKeys one by one.
+	   */
+	  private void combine() {
+	    Participant me = pin();
+	    for (Slot slot = slots.get(); slot != null; slot = slot.next) {
+	      if (!slot.pending)
+	        continue;
+	      batch.add(slot);
+	      if (slot.node != null)
+	        inserts.add(slot.node);
+	    }
+	    insertAll(inserts);
+	    for (Slot slot : batch) {
+	      if (slot.key != null)
+	        decreaseKeyNow(slot.key, slot.value);
+	      slot.node = null;
+	      slot.key = null;
+	      slot.pending = false;
+	    }
+	    inserts.clear();
+	    batch.clear();
+	    unpin(me);
+	  }
+	}
+
+	/**
+	 * One thread's pins and pools in a recycler.
+	 */
+	private final class Participant {
+	  private Participant next;
+	  // Epoch the thread's current call is pinned at, or IDLE.
+	  private volatile long pinned = IDLE;
+	  // Nested calls, e.g. insertAll() from a combiner.
+	  private int depth;
+	  private int calls;
+	  // Retired objects by epoch mod 3, and the epoch each batch went in at.
+	  private final ArrayList<Object>[] limbo = newLists();
+	  private final long[] limboEpoch = new long[3];
+	  // Reusable objects by kind.
+	  private final ArrayList<Object>[] free = newLists();
+	  // merger()'s list of children.
+	  private final ArrayList<PHNode<T>> scratch = new ArrayList<PHNode<T>>();
+
+	  @SuppressWarnings("unchecked")
+	  private ArrayList<Object>[] newLists() {
+	    return (ArrayList<Object>[])new ArrayList<?>[3];
+	  }
+
+	  private Participant() {
+	    for (int i = 0; i < 3; i++) {
+	      limbo[i] = new ArrayList<Object>();
+	      limboEpoch[i] = IDLE;
+	      free[i] = new ArrayList<Object>();
+	    }
+	  }
+	}
+
+	/**
+	 * Per-thread pools of descriptors and PHNode copies, with epoch based
+	 * reclamation. Every call pins its thread to the global epoch; whatever
+	 * is retired while the epoch is e is only reused once the epoch has
+	 * reached e + 2, and the epoch only moves on once every pinned thread is
+	 * pinned at the current one. So nothing is reused while a call that may
+	 * have read it, say a thread still helping an old descriptor, is running.
+	 *
+	 * Descriptors are retired by the thread whose CAS replaced them, along
+	 * with the old root of a WriteDescriptorNewRoot, whose copy has taken
+	 * its place by then. Copies cut out by decreaseKey() or left behind by a
+	 * failed new root CAS are retired by the merger() that walks past them.
+	 * Objects only ever built by this heap are reused, never the caller's.
+	 */
+	private final class Recycler {
+	  private final AtomicLong epoch = new AtomicLong(0);
+	  // Every thread that has used the heap, newest first; never unlinked.
+	  private final AtomicReference<Participant> participants = new AtomicReference<Participant>();
+	  private final ThreadLocal<Participant> mine = new ThreadLocal<Participant>() {
+	    protected Participant initialValue() {
+	      Participant me = new Participant();
+	      do {
+	        me.next = participants.get();
+	      } while (!participants.compareAndSet(me.next, me));
+	      return me;
+	    }
+	  };
+	  // Full chunks of free objects that other threads can take, by kind.
+	  private final ConcurrentLinkedQueue<ArrayList<Object>>[] shared = newQueues();
+
+	  @SuppressWarnings("unchecked")
+	  private ConcurrentLinkedQueue<ArrayList<Object>>[] newQueues() {
+	    return (ConcurrentLinkedQueue<ArrayList<Object>>[])new ConcurrentLinkedQueue<?>[3];
+	  }
+
+	  private Recycler() {
+	    for (int i = 0; i < 3; i++)
+	      shared[i] = new ConcurrentLinkedQueue<ArrayList<Object>>();
+	  }
+
+	  public Participant pin() {
+	    Participant me = mine.get();
+	    if (me.depth++ > 0)
+	      return me;
+	    long e = epoch.get();
+	    me.pinned = e;
+	    if (++me.calls % ADVANCE_EVERY == 0)
+	      tryAdvance(e);
+	    for (int i = 0; i < 3; i++)
+	      if (me.limboEpoch[i] <= e - 2 && !me.limbo[i].isEmpty())
+	        release(me, i);
+	    return me;
+	  }
+
+	  public void unpin(Participant me) {
+	    if (--me.depth == 0)
+	      me.pinned = IDLE;
+	  }
+
+	  private void tryAdvance(long e) {
+	    for (Participant p = participants.get(); p != null; p = p.next) {
+	      long pinned = p.pinned;
+	      if (pinned != IDLE && pinned != e)
+	        return;
+	    }
+	    epoch.compareAndSet(e, e + 1);
+	  }
+
+	  /**
+	   * Hands in an object that has just been unlinked; it is reused once
+	   * no call that could still see it is running.
+	   */
+	  public void retire(Object o) {
+	    Participant me = mine.get();
+	    long e = epoch.get();
+	    int i = (int)(e % 3);
+	    // Anything else in this bucket went in at e - 3 or earlier.
+	    if (me.limboEpoch[i] != e) {
+	      release(me, i);
+	      me.limboEpoch[i] = e;
+	    }
+	    me.limbo[i].add(o);
+	  }
+
+	  private void release(Participant me, int i) {
+	    for (Object o : me.limbo[i])
+	      free(o);
+	    me.limbo[i].clear();
+	  }
+
+	  /**
+	   * Puts an object that no other thread can see back in the pool.
+	   */
+	  public void free(Object o) {
+	    int kind;
+	    if (o instanceof PHNode) {
+	      PHNode<?> node = (PHNode<?>)o;
+	      // Don't keep the graph reachable from the pool.
+	      node.children = null;
+	      node.next = null;
+	      node.parent = null;
+	      node.graphNode = null;
+	      kind = NODE;
+	    } else
+	      kind = o instanceof LFPairingHeap.EmptyDescriptor ? EMPTY : NEW_ROOT;
+	    Participant me = mine.get();
+	    ArrayList<Object> list = me.free[kind];
+	    list.add(o);
+	    if (list.size() >= CHUNK) {
+	      shared[kind].offer(list);
+	      me.free[kind] = new ArrayList<Object>(CHUNK);
+	    }
+	  }
+
+	  /**
+	   * @return a free object of the given kind, or null if there is none
+	   */
+	  public Object take(int kind) {
+	    Participant me = mine.get();
+	    ArrayList<Object> list = me.free[kind];
+	    if (list.isEmpty()) {
+	      ArrayList<Object> chunk = shared[kind].poll();
+	      if (chunk == null)
+	        return null;
+	      me.free[kind] = list = chunk;
+	    }
+	    return list.remove(list.size() - 1);
+	  }
+	}
+
+	/**
+	 * Creates a new, empty pairing heap.
+	 */
+	public LFPairingHeap() {
+		this(false);
+	}
+
+	/**
+	 * Creates a new, empty pairing heap.
+	 *
+	 * @param combining route insert() and decreaseKey() through a flat
+	 * combiner: each thread publishes its call in a slot of its own and
+	 * whichever thread holds the combiner lock applies everything pending,
+	 * linking the batch's inserts together first so they cost one descriptor
+	 * install between them. This takes the contention off the descriptor
+	 * when many threads update at once; deleteMin() is not affected.
+	 */
+	public LFPairingHeap(boolean combining) {
+		this(combining, Pairing.TWO_PASS);
+	}
+
+	/**
+	 * Creates a new, empty pairing heap that merges with the given pairing
+	 * strategy.
+	 */
+	public LFPairingHeap(boolean combining, Pairing pairing) {
+		this(combining, pairing, false);
+	}
+
+	/**
+	 * Creates a new, empty pairing heap.
+	 *
+	 * @param recycling reuse descriptors and PHNode copies instead of
+	 * allocating new ones for every root change and cut
+	 */
+	public LFPairingHeap(boolean combining, Pairing pairing, boolean recycling) {
+		this.combiner = combining ? new Combiner() : null;
+		this.pairing = pairing;
+		this.recycler = recycling ? new Recycler() : null;
+		this.size = new AtomicInteger(0);
+		this.index = new AtomicReferenceArray<AtomicReferenceArray<GraphNode<T>>>(0);
+		this.descriptor = new AtomicStampedReference<WriteDescriptor>(new EmptyDescriptor(null), 0);
+	}
+
 	/**
 	 * Creates a new pairing heap.
 	 */
 	public LFPairingHeap(PHNode<T> root) {
+		this(root, Pairing.TWO_PASS);
+	}
+
+	/**
+	 * Creates a new pairing heap that merges with the given pairing strategy.
+	 */
+	public LFPairingHeap(PHNode<T> root, Pairing pairing) {
+		this(root, pairing, false);
+	}
+
+	/**
+	 * Creates a new pairing heap that merges with the given pairing strategy.
+	 *
+	 * @param recycling reuse descriptors and PHNode copies instead of
+	 * allocating new ones for every root change and cut
+	 */
+	public LFPairingHeap(PHNode<T> root, Pairing pairing, boolean recycling) {
+		this.combiner = null;
+		this.pairing = pairing;
+		this.recycler = recycling ? new Recycler() : null;
 		root.parent = null;
 		this.size = new AtomicInteger(1);
+		this.index = new AtomicReferenceArray<AtomicReferenceArray<GraphNode<T>>>(0);
+		addToIndex(root.graphNode);
 		this.descriptor = new AtomicStampedReference<WriteDescriptor>(new EmptyDescriptor(root), 0);
 	}
 
+	private Participant pin() {
+		return recycler == null ? null : recycler.pin();
+	}
+
+	private void unpin(Participant me) {
+		if (me != null)
+			recycler.unpin(me);
+	}
+
+	@SuppressWarnings("unchecked")
+	private EmptyDescriptor newEmptyDescriptor(PHNode<T> root) {
+		EmptyDescriptor d = recycler == null ? null : (EmptyDescriptor)recycler.take(EMPTY);
+		if (d == null)
+			return new EmptyDescriptor(root);
+		d.root = root;
+		return d;
+	}
+
+	@SuppressWarnings("unchecked")
+	private WriteDescriptorNewRoot newRootDescriptor(PHNode<T> newRoot, PHNode<T> oldRoot, PHNode<T> newLocForOldRoot) {
+		WriteDescriptorNewRoot d = recycler == null ? null : (WriteDescriptorNewRoot)recycler.take(NEW_ROOT);
+		if (d == null)
+			return new WriteDescriptorNewRoot(newRoot, oldRoot, newLocForOldRoot);
+		d.root = newRoot;
+		d.oldRoot = oldRoot;
+		d.newLocForOldRoot = newLocForOldRoot;
+		((WriteDescriptor)d).pending = true;
+		return d;
+	}
+
+	/**
+	 * @return a copy of node, from the pool in recycling mode
+	 */
+	@SuppressWarnings("unchecked")
+	private PHNode<T> copy(PHNode<T> node) {
+		if (recycler == null)
+			return node.clone();
+		PHNode<T> copy = (PHNode<T>)recycler.take(NODE);
+		if (copy == null)
+			copy = node.clone();
+		else {
+			copy.children = node.children;
+			copy.parent = node.parent;
+			copy.graphNode = node.graphNode;
+			copy.distance = node.distance;
+		}
+		copy.pooled = true;
+		return copy;
+	}
+
+	/**
+	 * Retires a descriptor our CAS has just replaced, and the old root it
+	 * moved, if that is one of our copies.
+	 */
+	private void retire(WriteDescriptor d) {
+		if (recycler == null)
+			return;
+		recycler.retire(d);
+		if (d instanceof LFPairingHeap.WriteDescriptorNewRoot) {
+			PHNode<T> oldRoot = ((WriteDescriptorNewRoot)d).oldRoot;
+			if (oldRoot.pooled)
+				recycler.retire(oldRoot);
+		}
+	}
+
 	/**
-	 * Merges two heaps together. The larger of rhs of lhs will become the child
-	 * of the smaller. Makes a stateful change to which ever the smaller of lhs
-	 * and rhs are.
+	 * Returns a descriptor that was never published to the pool.
+	 */
+	private void discard(WriteDescriptor d) {
+		if (recycler != null)
+			recycler.free(d);
+	}
+
+	/**
+	 * Merges two detached heaps together. The larger of rhs and lhs becomes
+	 * a child of the smaller.
 	 * 
 	 * @return the smallest node (which contains the larger as a subheap)
 	 */
@@ -104,184 +551,568 @@ public class LFPairingHeap<T> {
 			large = lhs;
 		}
 
-		small.subHeaps.add(large.graphNode);
 		large.parent = small.graphNode;
+		// A deleteMin() that saw small as the root may still hold its list; it
+		// gives it back as soon as its root CAS fails.
+		while (!push(small, large))
+			Thread.yield();
 
 		return small;
 	}
 
-	private PHNode<T> merger(ConcurrentLinkedQueue<GraphNode<T>> list) {
-		/*if (list.size() == 0)
+	/**
+	 * Claims the live nodes in a sealed child list and merges them with the
+	 * heap's pairing strategy.
+	 *
+	 * @return the root of the merged heap, or null
+	 */
+	private PHNode<T> merger(PHNode<T> head) {
+		ArrayList<PHNode<T>> list;
+		if (recycler == null)
+			list = new ArrayList<PHNode<T>>();
+		else {
+			list = recycler.mine.get().scratch;
+			list.clear();
+		}
+		for (PHNode<T> node = head; node != null; node = node.next) {
+			GraphNode<T> parent = node.parent;
+			// Skip tombstones and nodes a decreaseKey() is already moving.
+			boolean live = node.graphNode.phNode.get() == node;
+			if (parent != null && live && PARENT.compareAndSet(node, parent, null))
+				list.add(node);
+			// Nothing links to a tombstone once this list is gone.
+			else if (!live && node.pooled && recycler != null)
+				recycler.retire(node);
+		}
+		if (list.isEmpty())
 			return null;
-		if (list.size() == 1)
-			return list.poll();
 
-		return merge(merge(list.poll(), list.poll()), merger(list));*/
-		Stack<GraphNode<T>> list2 = new Stack<GraphNode<T>>();
-		while (true) {
-			GraphNode<T> one = list.poll();
-			GraphNode<T> two = list.poll();
-			if (one == null)
-				break;
-			if (two == null) {
-				one.phNode.get().parent = null;
-				list2.add(one);
-				break;
+		switch (pairing) {
+		case MULTIPASS:
+			return multipass(list, 0, list.size());
+		case FRONT_TO_BACK: {
+			int pairs = pairUp(list, 0, list.size());
+			PHNode<T> ret = list.get(0);
+			for (int i = 1; i < pairs; i++)
+				ret = merge(ret, list.get(i));
+			return ret;
+		}
+		case AUXILIARY_TWO_PASS: {
+			int run = 0;
+			while (run < list.size() && list.get(run).children.get() == null)
+				run++;
+			if (run > 1) {
+				multipass(list, 0, run);
+				list.subList(1, run).clear();
 			}
-			PHNode<T> winner = merge(one.phNode.get(), two.phNode.get());
-			winner.parent = null;
-			list2.add(winner.graphNode);
+			return twoPass(list);
 		}
-		GraphNode<T> ret = list2.pop();
-		while (list2.size() > 0) {
-			ret = merge(ret.phNode.get(), list2.pop().phNode.get()).graphNode;
+		default:
+			return twoPass(list);
+		}
+	}
+
+	private PHNode<T> twoPass(ArrayList<PHNode<T>> list) {
+		int pairs = pairUp(list, 0, list.size());
+		PHNode<T> ret = list.get(pairs - 1);
+		for (int i = pairs - 2; i >= 0; i--)
+			ret = merge(list.get(i), ret);
+		return ret;
+	}
+
+	/**
+	 * Pairs up list[from, to) until one tree is left, which ends up in
+	 * list[from].
+	 */
+	private PHNode<T> multipass(ArrayList<PHNode<T>> list, int from, int to) {
+		int n = to - from;
+		while (n > 1)
+			n = pairUp(list, from, from + n);
+		return list.get(from);
+	}
+
+	/**
+	 * Links list[from, to) in pairs, left to right, and moves the winners to
+	 * the front of the range.
+	 *
+	 * @return the number of winners
+	 */
+	private int pairUp(ArrayList<PHNode<T>> list, int from, int to) {
+		int pairs = from;
+		for (int i = from; i + 1 < to; i += 2)
+			list.set(pairs++, merge(list.get(i), list.get(i + 1)));
+		if ((to - from) % 2 == 1)
+			list.set(pairs++, list.get(to - 1));
+		return pairs - from;
+	}
+
+	/**
+	 * Pushes child onto parent's child list.
+	 *
+	 * @return false if the list is sealed
+	 */
+	private boolean push(PHNode<T> parent, PHNode<T> child) {
+		while (true) {
+			PHNode<T> head = parent.children.get();
+			if (head == sealed)
+				return false;
+			child.next = head;
+			if (parent.children.compareAndSet(head, child))
+				return true;
 		}
-		return ret.phNode.get();
+	}
+
+	/**
+	 * Hangs child off of parent. If parent is being popped and child could be
+	 * taken back, returns false and the caller must retry; otherwise a
+	 * decreaseKey() has claimed child and will relink it.
+	 */
+	private boolean addChild(PHNode<T> parent, PHNode<T> child) {
+		GraphNode<T> p = parent.graphNode;
+		child.parent = p;
+		if (push(parent, child))
+			return true;
+		return !PARENT.compareAndSet(child, p, null);
 	}
 
 	/**
 	 * Inserts e into the heap.
 	 */
 	public void insert(PHNode<T> e) {
+		if (combiner != null) {
+			combiner.apply(e, null, 0);
+			return;
+		}
+		Participant me = pin();
+		addToIndex(e.graphNode);
+		insertNode(e);
+		size.getAndIncrement();
+		unpin(me);
+	}
+
+	/**
+	 * Inserts all of nodes at once. They are first paired up into one heap
+	 * in repeated left to right passes (n - 1 links without any CAS, as no
+	 * other thread can see them yet), which is then linked in with a single
+	 * descriptor install. None of the nodes may be in a heap already.
+	 */
+	public void insertAll(List<PHNode<T>> nodes) {
+		if (nodes.isEmpty())
+			return;
+		Participant me = pin();
+		ArrayList<PHNode<T>> roots = new ArrayList<PHNode<T>>(nodes);
+		for (PHNode<T> node : roots) {
+			node.parent = null;
+			addToIndex(node.graphNode);
+		}
+		int n = roots.size();
+		while (n > 1) {
+			int pairs = 0;
+			for (int i = 0; i + 1 < n; i += 2)
+				roots.set(pairs++, link(roots.get(i), roots.get(i + 1)));
+			if (n % 2 == 1)
+				roots.set(pairs++, roots.get(n - 1));
+			n = pairs;
+		}
+		insertNode(roots.get(0));
+		size.getAndAdd(nodes.size());
+		unpin(me);
+	}
+
+	/**
+	 * Makes the larger of two unpublished nodes a child of the smaller. No
+	 * other thread can see them yet, so ordered stores will do; the
+	 * descriptor CAS that publishes the heap orders them for everyone.
+	 */
+	private PHNode<T> link(PHNode<T> a, PHNode<T> b) {
+		if (b.distance < a.distance) {
+			PHNode<T> t = a;
+			a = b;
+			b = t;
+		}
+		PARENT.lazySet(b, a.graphNode);
+		NEXT.lazySet(b, a.children.get());
+		a.children.lazySet(b);
+		return a;
+	}
+
+	/**
+	 * Links e, along with any subheaps it already has, into the heap. Does not
+	 * touch the size counter.
+	 */
+	private void insertNode(PHNode<T> e) {
 		PHNode<T> expectedRoot;
-		int[] expectedStamp = new int[1];
 		while (true) {
-		  WriteDescriptor d = descriptor.get(expectedStamp);
+		  WriteDescriptor d = descriptor.getReference();
+		  int expectedStamp = descriptor.getStamp();
 		  d.execute();
 		  expectedRoot = d.root;
 
+		  // Empty heap: e becomes the root.
+		  if (expectedRoot == null) {
+		    e.parent = null;
+		    WriteDescriptor dNew = newEmptyDescriptor(e);
+		    if (descriptor.compareAndSet(d, dNew, expectedStamp,
+		                                 expectedStamp + 1)) {
+		      retire(d);
+		      return;
+		    }
+		    discard(dNew);
+		    continue;
+		  }
+
 		  // Check if we can just insert this as a child of the root.
 		  if (e.distance >= expectedRoot.distance) {
-		    e.parent = expectedRoot.graphNode;
-		    expectedRoot.subHeaps.add(e.graphNode);
-		    break;
+		    if (addChild(expectedRoot, e))
+		      break;
+		    continue;
 		  }
 			
-		  // Otherwise, make a new root.
-		  PHNode<T> expectedRootClone = expectedRoot.clone();
-		  e = merge(expectedRootClone, e);
-		  WriteDescriptor dNew = new WriteDescriptorNewRoot(e, expectedRoot, expectedRootClone);
-		  if (descriptor.compareAndSet(d, dNew, expectedStamp[0],
-					 expectedStamp[0] + 1)) {
+		  // Otherwise, make a new root. The old root goes under e as a copy that
+		  // only becomes current once the descriptor executes; if the CAS fails
+		  // the copy is left in e's list as a tombstone.
+		  PHNode<T> expectedRootClone = copy(expectedRoot);
+		  expectedRootClone.parent = e.graphNode;
+		  while (!push(e, expectedRootClone))
+		    Thread.yield();
+		  WriteDescriptor dNew = newRootDescriptor(e, expectedRoot, expectedRootClone);
+		  if (descriptor.compareAndSet(d, dNew, expectedStamp,
+					 expectedStamp + 1)) {
+		    retire(d);
 		    break;
 		  }
-		  else {
-		    e.subHeaps.remove(expectedRoot.graphNode);
-		    descriptor.getReference().execute();
-		  }
+		  discard(dNew);
+		  descriptor.getReference().execute();
 		}
 		descriptor.getReference().execute();
-		size.getAndIncrement();
 	}
 	
-	// Not lock-free!
+	/**
+	 * Pops the root off of the heap. The root's child list is sealed and its
+	 * children merged into a private subheap, which is then swapped in with a
+	 * single descriptor CAS. If the CAS loses, the merged subheap goes back
+	 * as the root's only child and we retry. Other pops of the same root spin
+	 * until the seal is lifted, so this blocks rather than being lock-free.
+	 * 
+	 * @return the popped node, or null if the heap is empty
+	 */
 	public PHNode<T> deleteMin() {
-		int[] stamp = new int[1];
-		WriteDescriptor d = descriptor.get(stamp);
-		PHNode<T> ret = d.root;
-
-		size.getAndDecrement();
-		ret.graphNode.inHeap = false;
-		PHNode<T> newRoot;
-		if (ret.subHeaps.size() == 0)
-		  newRoot = null;
-		else
-		  newRoot = merger(ret.subHeaps);
-		descriptor.set(new EmptyDescriptor(newRoot), stamp[0] + 1);
+		Participant me = pin();
+		PHNode<T> ret = deleteMinNow();
+		unpin(me);
 		return ret;
 	}
 
+	private PHNode<T> deleteMinNow() {
+		while (true) {
+		  WriteDescriptor d = descriptor.getReference();
+		  int stamp = descriptor.getStamp();
+		  d.execute();
+		  PHNode<T> ret = d.root;
+		  if (ret == null)
+		    return null;
+
+		  // If another deleteMin() has the list, wait for it to either pop the
+		  // root or give the list back.
+		  PHNode<T> head = ret.children.get();
+		  if (head == sealed || !ret.children.compareAndSet(head, sealed)) {
+		    Thread.yield();
+		    continue;
+		  }
+
+		  PHNode<T> newRoot = merger(head);
+		  WriteDescriptor dNew = newEmptyDescriptor(newRoot);
+		  if (descriptor.compareAndSet(d, dNew, stamp, stamp + 1)) {
+		    retire(d);
+		    ret.graphNode.inHeap = false;
+		    removeFromIndex(ret.graphNode);
+		    size.getAndDecrement();
+		    return ret;
+		  }
+		  
+		  // Someone else changed the root; give the children back. Nobody else
+		  // can have popped ret while we held its list.
+		  discard(dNew);
+		  unseal(ret, newRoot);
+		}
+	}
+
+	/**
+	 * Lifts the seal this thread holds on owner's child list, leaving sub (a
+	 * merged subheap, or null) as its only child. sub stays in reach the
+	 * whole time: anyone after it waits on the seal.
+	 */
+	private void unseal(PHNode<T> owner, PHNode<T> sub) {
+		if (sub != null) {
+			sub.parent = owner.graphNode;
+			sub.next = null;
+		}
+		owner.children.set(sub);
+	}
+
+	/**
+	 * Pops the root and, in the same descriptor CAS, every next minimum whose
+	 * weight is at most the root's plus delta, up to max nodes in all. The
+	 * extra minima come off of the private subheap that deleteMin() would
+	 * swap in, so the whole batch costs one structural update. If the CAS
+	 * loses, every popped node goes back where it was and we retry.
+	 *
+	 * @return the number of nodes appended to out, 0 if the heap is empty
+	 */
+	public int deleteMinBatch(int max, int delta, List<PHNode<T>> out) {
+		Participant me = pin();
+		int n = deleteMinBatchNow(max, delta, out);
+		unpin(me);
+		return n;
+	}
+
+	private int deleteMinBatchNow(int max, int delta, List<PHNode<T>> out) {
+		ArrayList<PHNode<T>> popped = new ArrayList<PHNode<T>>();
+		while (true) {
+		  WriteDescriptor d = descriptor.getReference();
+		  int stamp = descriptor.getStamp();
+		  d.execute();
+		  PHNode<T> ret = d.root;
+		  if (ret == null)
+		    return 0;
+
+		  PHNode<T> head = ret.children.get();
+		  if (head == sealed || !ret.children.compareAndSet(head, sealed)) {
+		    Thread.yield();
+		    continue;
+		  }
+		  popped.add(ret);
+		  PHNode<T> newRoot = merger(head);
+
+		  long bound = (long)ret.distance + delta;
+		  while (newRoot != null && popped.size() < max && newRoot.distance <= bound) {
+		    // Nobody else can reach this subheap now, but a stale deleteMin()
+		    // may still hold the list; it gives it back right away.
+		    PHNode<T> next = newRoot;
+		    while ((head = next.children.get()) == sealed || !next.children.compareAndSet(head, sealed))
+		      Thread.yield();
+		    popped.add(next);
+		    newRoot = merger(head);
+		  }
+
+		  WriteDescriptor dNew = newEmptyDescriptor(newRoot);
+		  if (descriptor.compareAndSet(d, dNew, stamp, stamp + 1)) {
+		    retire(d);
+		    for (PHNode<T> node : popped) {
+		      node.graphNode.inHeap = false;
+		      removeFromIndex(node.graphNode);
+		    }
+		    size.getAndAdd(-popped.size());
+		    out.addAll(popped);
+		    return popped.size();
+		  }
+
+		  // Put the chain back the way it came apart, bottom up: each popped
+		  // node was the merged subheap of the one before it. Everything
+		  // stays under ret's seal until the last unseal lifts it.
+		  discard(dNew);
+		  for (int i = popped.size() - 1; i >= 0; i--) {
+		    unseal(popped.get(i), newRoot);
+		    newRoot = popped.get(i);
+		  }
+		  popped.clear();
+		}
+	}
+
 	public int size() {
 	  return size.get();
 	}
 	
+	/**
+	 * @return the node with the given id if it is in the heap, else null
+	 */
 	public PHNode<T> search(int id) {
-	  return search(id, descriptor.getReference().root);
+	  GraphNode<T> node = lookup(id);
+	  return node == null ? null : node.phNode.get();
 	}
-	
-	private PHNode<T> search(int id, PHNode<T> start) {
-		if (start.graphNode.id == id)
-			return start;
-		for(GraphNode<T> node : start.subHeaps) {
-			PHNode<T> res = search(id, node.phNode.get());
-			if (res != null)
-				return res;
-		}
-		return null;
+
+	/**
+	 * @return node's current weight; with recycling on, read weights through
+	 * here rather than through a PHNode that may have been reused meanwhile
+	 */
+	public int getKey(GraphNode<T> node) {
+	  if (recycler == null)
+	    return node.phNode.get().distance;
+	  Participant me = recycler.pin();
+	  int key = node.phNode.get().distance;
+	  recycler.unpin(me);
+	  return key;
+	}
+
+	public boolean contains(int id) {
+	  return lookup(id) != null;
+	}
+
+	/**
+	 * Wraps value in a new node with the given id and weight and inserts it.
+	 * The id must not already be in the heap.
+	 *
+	 * @return the node's handle, for decreaseKey()
+	 */
+	public GraphNode<T> insert(int id, T value, int weight) {
+	  GraphNode<T> node = new GraphNode<T>(value, id, 0);
+	  PHNode<T> phNode = new PHNode<T>();
+	  phNode.graphNode = node;
+	  phNode.distance = weight;
+	  node.phNode.set(phNode);
+	  node.inHeap = true;
+	  insert(phNode);
+	  return node;
+	}
+
+	/**
+	 * Lowers the weight of the node with the given id.
+	 *
+	 * @return false if no such node is in the heap
+	 */
+	public boolean decreaseKey(int id, int newValue) {
+	  GraphNode<T> node = lookup(id);
+	  if (node == null)
+	    return false;
+	  decreaseKey(node, newValue);
+	  return true;
+	}
+
+	/**
+	 * @return the index chunk holding id, or null if it has none yet
+	 */
+	private AtomicReferenceArray<GraphNode<T>> chunkOf(int id) {
+	  AtomicReferenceArray<AtomicReferenceArray<GraphNode<T>>> table = index;
+	  int i = id >>> INDEX_BITS;
+	  return i < table.length() ? table.get(i) : null;
+	}
+
+	/**
+	 * Allocates the chunk for id, growing the table first if need be. Only
+	 * runs once per chunk, so a lock will do.
+	 */
+	private synchronized AtomicReferenceArray<GraphNode<T>> newChunk(int id) {
+	  AtomicReferenceArray<AtomicReferenceArray<GraphNode<T>>> table = index;
+	  int i = id >>> INDEX_BITS;
+	  if (i >= table.length()) {
+	    AtomicReferenceArray<AtomicReferenceArray<GraphNode<T>>> bigger =
+	      new AtomicReferenceArray<AtomicReferenceArray<GraphNode<T>>>(Math.max(i + 1, 2 * table.length()));
+	    for (int j = 0; j < table.length(); j++)
+	      bigger.set(j, table.get(j));
+	    index = table = bigger;
+	  }
+	  AtomicReferenceArray<GraphNode<T>> chunk = table.get(i);
+	  if (chunk == null) {
+	    chunk = new AtomicReferenceArray<GraphNode<T>>(1 << INDEX_BITS);
+	    table.set(i, chunk);
+	  }
+	  return chunk;
+	}
+
+	private GraphNode<T> lookup(int id) {
+	  AtomicReferenceArray<GraphNode<T>> chunk = chunkOf(id);
+	  return chunk == null ? null : chunk.get(id & INDEX_MASK);
+	}
+
+	private void addToIndex(GraphNode<T> node) {
+	  if (node.id < 0)
+	    throw new IllegalArgumentException("Negative node id " + node.id);
+	  AtomicReferenceArray<GraphNode<T>> chunk = chunkOf(node.id);
+	  if (chunk == null)
+	    chunk = newChunk(node.id);
+	  chunk.set(node.id & INDEX_MASK, node);
+	}
+
+	private void removeFromIndex(GraphNode<T> node) {
+	  AtomicReferenceArray<GraphNode<T>> chunk = chunkOf(node.id);
+	  if (chunk != null)
+	    chunk.compareAndSet(node.id & INDEX_MASK, node, null);
 	}
 	
+	/**
+	 * Lowers key's weight to newValue. The stamp is read apart from the
+	 * reference (a mismatched pair only makes the CAS fail), so nothing is
+	 * allocated while key stays below its parent. Lowering the root or
+	 * cutting a node allocates a PHNode copy; a new root also allocates a
+	 * descriptor.
+	 */
 	public void decreaseKey(GraphNode<T> key, int newValue) {
+	  if (combiner != null)
+	    combiner.apply(null, key, newValue);
+	  else {
+	    Participant me = pin();
+	    decreaseKeyNow(key, newValue);
+	    unpin(me);
+	  }
+	}
+
+	private void decreaseKeyNow(GraphNode<T> key, int newValue) {
 	  if (!key.inHeap || key.phNode.get().distance == newValue)
 	    return;
-	  
+
 	  PHNode<T> keyLoc;
-	  PHNode<T> expectedRoot;
-	  int[] expectedStamp = new int[1];
-	  
-	  // Case 1: Decreasing the root
-	  while (key.phNode.get() == descriptor.getReference().root) {
-		WriteDescriptor d = descriptor.get(expectedStamp);
+	  GraphNode<T> parent;
+	  while (true) {
+	    WriteDescriptor d = descriptor.getReference();
+	    int expectedStamp = descriptor.getStamp();
 	    d.execute();
 	    keyLoc = key.phNode.get();
-	    if (d.root != keyLoc)
-	    	break;
-	    PHNode<T> newRoot = keyLoc.clone();
-	    newRoot.distance = newValue;
-	    WriteDescriptor newD = new WriteDescriptorUpdateRoot(d.root, newRoot);
-	    
-	    if (descriptor.compareAndSet(d, newD, expectedStamp[0], expectedStamp[0] + 1)) {
-	      descriptor.getReference().execute();
-	      return;
+
+	    // Case 1: Decreasing the root. A lowered copy goes in with a new
+	    // descriptor rather than writing the weight in place, so nothing ever
+	    // sees the new weight on a root that has been replaced meanwhile, and
+	    // any insert that cloned the root with its old weight fails its CAS.
+	    if (d.root == keyLoc) {
+	      PHNode<T> lowered = copy(keyLoc);
+	      lowered.distance = newValue;
+	      WriteDescriptor dNew = newRootDescriptor(lowered, keyLoc, lowered);
+	      if (descriptor.compareAndSet(d, dNew, expectedStamp, expectedStamp + 1)) {
+	        retire(d);
+	        dNew.execute();
+	        return;
+	      }
+	      discard(dNew);
+	      if (lowered.pooled)
+	        recycler.free(lowered);
+	      continue;
 	    }
-	    else
-	      descriptor.getReference().execute();
-	      
+
+	    // No parent: we are the top of a subheap that a deleteMin() or a cut
+	    // is relinking, or we were just popped. Wait for it to land.
+	    parent = keyLoc.parent;
+	    if (parent == null) {
+	      if (!key.inHeap)
+	        return;
+	      Thread.yield();
+	      continue;
+	    }
+
+	    // Update the weight, then check that keyLoc was neither cut nor claimed
+	    // by a deleteMin() before the write landed; if it was, redo it wherever
+	    // key is now.
+	    keyLoc.distance = newValue;
+	    if (key.phNode.get() == keyLoc && keyLoc.parent == parent)
+	      break;
+	    if (!key.inHeap)
+	      return;
 	  }
-	  
-	  descriptor.getReference().execute();
-	  keyLoc = key.phNode.get();
-	  
-	  // Update the weight.
-	  keyLoc.distance = newValue;
-		
-	  if (keyLoc.parent == null)
-	    System.out.println(key + " " + key.hashCode());
 		
 	  // Case 2: Target is still greater than its parent.
 	  // (No changes to the tree structure needed in this case.)
-	  if (keyLoc.parent.phNode.get().distance <= keyLoc.distance)
+	  if (parent.phNode.get().distance <= newValue)
 	    return;
 	  
-	  // Delink the node from its parent.
-	  keyLoc.parent.phNode.get().subHeaps.remove(key);
-		
-	  while (true) {
-	    WriteDescriptor d = descriptor.get(expectedStamp);
-	    d.execute();
-	    
-	    keyLoc = key.phNode.get();
-	    expectedRoot = d.root;
+	  // Claim the node. If that fails, a concurrent deleteMin() or decreaseKey()
+	  // has already taken it and will relink it.
+	  if (!PARENT.compareAndSet(keyLoc, parent, null))
+	    return;
 
-	    // Case 3: Target is greater than the current root.
-	    if (expectedRoot.distance <= keyLoc.distance) {
-	      keyLoc.parent = expectedRoot.graphNode;
-	      expectedRoot.subHeaps.add(key);
-	      return;
-	    }
-	    
-	    // Case 4: Update the root.
-	    keyLoc.parent = null;
-	    PHNode<T> oldRootClone = expectedRoot.clone();
-	    PHNode<T> newRoot = merge(oldRootClone, keyLoc);
-	    WriteDescriptor newD = new WriteDescriptorNewRoot(newRoot, expectedRoot, oldRootClone);
-	    if (descriptor.compareAndSet(d, newD, expectedStamp[0], expectedStamp[0] + 1)) {
-	      descriptor.getReference().execute();
-	      return;
-	    }
-	    else {
-	      descriptor.getReference().execute();
-	      keyLoc.subHeaps.remove(expectedRoot.graphNode);
-	    }
-	  }
+	  // Case 3: keyLoc stays behind in its parent's list as a tombstone and a
+	  // copy, which shares its children, goes back in at the root.
+	  PHNode<T> moved = copy(keyLoc);
+	  key.phNode.set(moved);
+	  if (keyLoc.distance < moved.distance)
+	    moved.distance = keyLoc.distance;
+	  insertNode(moved);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+import java.util.*;
+
+/**
+ * VertexQueue on a concurrent pairing heap. Keys are kept in each vertex's
+ * PHNode.
+ */
+public class LFPairingHeapQueue<T> implements BatchVertexQueue<T> {
+	private final LFPairingHeap<T> heap;
+	// Scratch lists for insertAll() and deleteMinBatch(), per thread.
+	private final ThreadLocal<ArrayList<PHNode<T>>> scratch = new ThreadLocal<ArrayList<PHNode<T>>>() {
+		protected ArrayList<PHNode<T>> initialValue() {
+			return new ArrayList<PHNode<T>>();
+		}
+	};
+
+	public LFPairingHeapQueue() {
+		this(new LFPairingHeap<T>());
+	}
+
+	public LFPairingHeapQueue(LFPairingHeap<T> heap) {
+		this.heap = heap;
+	}
+
+	public void insert(GraphNode<T> node, int key) {
+		heap.insert(newPHNode(node, key));
+	}
+
+	/**
+	 * Links nodes together first and then into the heap with a single
+	 * descriptor install (see LFPairingHeap.insertAll()).
+	 */
+	public void insertAll(List<GraphNode<T>> nodes, int[] keys) {
+		ArrayList<PHNode<T>> phNodes = scratch.get();
+		phNodes.clear();
+		for (int i = 0; i < nodes.size(); i++)
+			phNodes.add(newPHNode(nodes.get(i), keys[i]));
+		heap.insertAll(phNodes);
+		phNodes.clear();
+	}
+
+	private PHNode<T> newPHNode(GraphNode<T> node, int key) {
+		PHNode<T> phNode = new PHNode<T>();
+		phNode.graphNode = node;
+		phNode.distance = key;
+		node.phNode.set(phNode);
+		node.inHeap = true;
+		return phNode;
+	}
+
+	public GraphNode<T> deleteMin() {
+		PHNode<T> min = heap.deleteMin();
+		return min == null ? null : min.graphNode;
+	}
+
+	public int deleteMinBatch(int delta, List<GraphNode<T>> out) {
+		ArrayList<PHNode<T>> popped = scratch.get();
+		popped.clear();
+		int n = heap.deleteMinBatch(Integer.MAX_VALUE, delta, popped);
+		for (PHNode<T> min : popped)
+			out.add(min.graphNode);
+		popped.clear();
+		return n;
+	}
+
+	public void decreaseKey(GraphNode<T> node, int key) {
+		if (key < heap.getKey(node))
+			heap.decreaseKey(node, key);
+	}
+
+	public int getKey(GraphNode<T> node) {
+		return heap.getKey(node);
+	}
+
+	public int size() {
+		return heap.size();
+	}
+}
@@ -0,0 +1,301 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Tester for LFPairingHeap. Checks that pops come out in order when run
+ * serially and that nothing is lost or popped twice when producers and
+ * consumers run concurrently.
+ *
+ * @author Charles Newton
+ */
+public class LFPairingHeapTest {
+
+	private final int testSize = 100000;
+	private final int numThreads = 4;
+
+	public static void main(String[] args) throws InterruptedException {
+		LFPairingHeapTest test = new LFPairingHeapTest();
+		test.testSerial();
+		test.testSearch();
+		test.testInsertAll();
+		test.testDeleteMinBatch();
+		for (LFPairingHeap.Pairing pairing : LFPairingHeap.Pairing.values())
+			test.testPairing(pairing);
+		test.testConcurrentDeleteMin(false, false);
+		test.testConcurrentDecreaseKey(false, false);
+		test.testConcurrentDeleteMin(true, false);
+		test.testConcurrentDecreaseKey(true, false);
+		test.testConcurrentDeleteMin(false, true);
+		test.testConcurrentDecreaseKey(false, true);
+	}
+
+	public boolean assertEquals(String title, boolean test, boolean result)
+	{
+		if(test != result)
+			System.out.println(title+": failed!");
+		return test == result;
+	}
+
+	private PHNode<Integer> newNode(int id, int distance) {
+		GraphNode<Integer> node = new GraphNode<Integer>(id, id, 0);
+		PHNode<Integer> phNode = new PHNode<Integer>();
+		phNode.graphNode = node;
+		phNode.distance = distance;
+		node.phNode.set(phNode);
+		return phNode;
+	}
+
+	public void testSerial() {
+		System.out.println("Test Serial");
+		LFPairingHeap<Integer> heap = new LFPairingHeap<Integer>();
+		for(int i = 0; i < testSize; i++)
+			heap.insert(newNode(i, (int)(Integer.MAX_VALUE * Rnd.dbl())));
+
+		int last = Integer.MIN_VALUE;
+		int popped = 0;
+		PHNode<Integer> min;
+		while ((min = heap.deleteMin()) != null) {
+			if (!assertEquals("Order", true, min.distance >= last))
+				break;
+			last = min.distance;
+			popped++;
+		}
+		assertEquals("Count", true, popped == testSize);
+		assertEquals("Empty", true, heap.size() == 0);
+	}
+
+	/**
+	 * Bulk insert into an empty and into a non-empty heap, then pop in order.
+	 */
+	public void testInsertAll() {
+		System.out.println("Test InsertAll");
+		LFPairingHeap<Integer> heap = new LFPairingHeap<Integer>();
+		for(int round = 0; round < 2; round++) {
+			ArrayList<PHNode<Integer>> nodes = new ArrayList<PHNode<Integer>>();
+			for(int i = 0; i < testSize; i++)
+				nodes.add(newNode(round * testSize + i, (int)(Integer.MAX_VALUE * Rnd.dbl())));
+			heap.insertAll(nodes);
+		}
+		assertEquals("Size", true, heap.size() == 2 * testSize);
+		assertEquals("Search", true, heap.search(testSize + 7) != null);
+
+		int last = Integer.MIN_VALUE;
+		int popped = 0;
+		PHNode<Integer> min;
+		while ((min = heap.deleteMin()) != null) {
+			if (!assertEquals("Order", true, min.distance >= last))
+				break;
+			last = min.distance;
+			popped++;
+		}
+		assertEquals("Count", true, popped == 2 * testSize);
+	}
+
+	/**
+	 * Batches must hold exactly the keys within delta of their first, capped
+	 * at max, and come out in order batch by batch.
+	 */
+	public void testDeleteMinBatch() {
+		System.out.println("Test DeleteMinBatch");
+		LFPairingHeap<Integer> heap = new LFPairingHeap<Integer>();
+		int[] count = new int[testSize / 10];
+		for(int i = 0; i < testSize; i++) {
+			int key = (int)(count.length * Rnd.dbl());
+			count[key]++;
+			heap.insert(newNode(i, key));
+		}
+
+		ArrayList<PHNode<Integer>> batch = new ArrayList<PHNode<Integer>>();
+		int popped = 0;
+		int last = Integer.MIN_VALUE;
+		int limit = Integer.MIN_VALUE;
+		while (heap.deleteMinBatch(50, 2, batch) > 0) {
+			int first = batch.get(0).distance;
+			// A batch short of max must have taken everything within delta.
+			if (!assertEquals("Window", true, first > limit))
+				return;
+			for (PHNode<Integer> node : batch) {
+				if (!assertEquals("Range", true, node.distance >= last && node.distance <= first + 2))
+					return;
+				count[node.distance]--;
+				last = Math.max(last, node.distance);
+			}
+			limit = batch.size() < 50 ? first + 2 : Integer.MIN_VALUE;
+			popped += batch.size();
+			batch.clear();
+		}
+		assertEquals("Count", true, popped == testSize);
+		boolean all = true;
+		for (int c : count)
+			all &= c == 0;
+		assertEquals("Keys", true, all);
+	}
+
+	/**
+	 * Inserts, decreaseKeys and pops interleaved, so the popped roots have
+	 * both fresh single nodes and older subtrees below them; pops must come
+	 * out in order with every strategy.
+	 */
+	public void testPairing(LFPairingHeap.Pairing pairing) {
+		System.out.println("Test Pairing " + pairing);
+		LFPairingHeap<Integer> heap = new LFPairingHeap<Integer>(false, pairing);
+		ArrayList<PHNode<Integer>> live = new ArrayList<PHNode<Integer>>();
+		int last = Integer.MIN_VALUE;
+		int popped = 0;
+		for(int i = 0; i < testSize; i++) {
+			PHNode<Integer> node = newNode(i, last + 1 + (int)(1000000 * Rnd.dbl()));
+			heap.insert(node);
+			live.add(node);
+			if (i % 3 == 0) {
+				GraphNode<Integer> key = live.get((int)(live.size() * Rnd.dbl())).graphNode;
+				int distance = key.phNode.get().distance;
+				if (distance > last + 1)
+					heap.decreaseKey(key, last + 1 + (distance - last - 1) / 2);
+			}
+			if (i % 4 == 3) {
+				PHNode<Integer> min = heap.deleteMin();
+				if (!assertEquals("Order", true, min.distance >= last))
+					return;
+				last = min.distance;
+				popped++;
+				live.remove(min.graphNode.phNode.get());
+			}
+		}
+		PHNode<Integer> min;
+		while ((min = heap.deleteMin()) != null) {
+			if (!assertEquals("Order", true, min.distance >= last))
+				return;
+			last = min.distance;
+			popped++;
+		}
+		assertEquals("Count", true, popped == testSize);
+	}
+
+	/**
+	 * Lookups and decreaseKey() by id, including ids far apart and negative.
+	 */
+	public void testSearch() {
+		System.out.println("Test Search");
+		LFPairingHeap<Integer> heap = new LFPairingHeap<Integer>();
+		int[] ids = new int[1000];
+		for(int i = 0; i < ids.length; i++) {
+			ids[i] = (i * 7919) * (i % 2 == 0 ? 1 : -1) + i * 1000003;
+			heap.insert(ids[i], i, 1000000 + i);
+		}
+		for(int i = 0; i < ids.length; i++) {
+			PHNode<Integer> found = heap.search(ids[i]);
+			if (!assertEquals("Search", true, found != null && found.graphNode.value == i))
+				return;
+		}
+		assertEquals("Search missing", true, heap.search(12345) == null);
+
+		// Reverse the order through decreaseKey by id.
+		for(int i = 0; i < ids.length; i++)
+			assertEquals("DecreaseKey", true, heap.decreaseKey(ids[i], ids.length - i));
+		for(int i = ids.length - 1; i >= 0; i--) {
+			PHNode<Integer> min = heap.deleteMin();
+			if (!assertEquals("Order", true, min != null && min.graphNode.id == ids[i]))
+				return;
+			assertEquals("Removed", false, heap.contains(ids[i]));
+		}
+		assertEquals("DecreaseKey missing", false, heap.decreaseKey(ids[0], 0));
+	}
+
+	/**
+	 * Producers insert while consumers pop; every node must be popped once.
+	 */
+	public void testConcurrentDeleteMin(boolean combining, boolean recycling) throws InterruptedException {
+		System.out.println("Test Concurrent DeleteMin" + (combining ? " (combining)" : "") + (recycling ? " (recycling)" : ""));
+		final LFPairingHeap<Integer> heap = new LFPairingHeap<Integer>(combining, LFPairingHeap.Pairing.TWO_PASS, recycling);
+		final AtomicIntegerArray seen = new AtomicIntegerArray(testSize * numThreads);
+		final AtomicInteger remaining = new AtomicInteger(testSize * numThreads);
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+
+		for(int t = 0; t < numThreads; t++) {
+			final int offset = t * testSize;
+			threads.add(new Thread() {
+				public void run() {
+					for(int i = 0; i < testSize; i++)
+						heap.insert(newNode(offset + i, (int)(Integer.MAX_VALUE * ThreadLocalRandom.current().nextDouble())));
+				}
+			});
+			threads.add(new Thread() {
+				public void run() {
+					while (remaining.get() > 0) {
+						PHNode<Integer> min = heap.deleteMin();
+						if (min == null)
+							continue;
+						seen.incrementAndGet(min.graphNode.id);
+						remaining.decrementAndGet();
+					}
+				}
+			});
+		}
+		for(Thread thread : threads)
+			thread.start();
+		for(Thread thread : threads)
+			thread.join();
+
+		for(int i = 0; i < seen.length(); i++)
+			if (!assertEquals("Popped once", true, seen.get(i) == 1)) {
+				System.out.println(i + " popped " + seen.get(i) + " times");
+				break;
+			}
+		assertEquals("Empty", true, heap.deleteMin() == null);
+	}
+
+	/**
+	 * Consumers pop while other threads decrease keys of nodes still in the
+	 * heap; every node must still be popped once.
+	 */
+	public void testConcurrentDecreaseKey(boolean combining, boolean recycling) throws InterruptedException {
+		System.out.println("Test Concurrent DecreaseKey" + (combining ? " (combining)" : "") + (recycling ? " (recycling)" : ""));
+		final LFPairingHeap<Integer> heap = new LFPairingHeap<Integer>(combining, LFPairingHeap.Pairing.TWO_PASS, recycling);
+		final ArrayList<GraphNode<Integer>> nodes = new ArrayList<GraphNode<Integer>>();
+		final AtomicIntegerArray seen = new AtomicIntegerArray(testSize);
+		final AtomicInteger remaining = new AtomicInteger(testSize);
+		for(int i = 0; i < testSize; i++) {
+			PHNode<Integer> phNode = newNode(i, Integer.MAX_VALUE / 2 + (int)(Integer.MAX_VALUE / 2 * Rnd.dbl()));
+			nodes.add(phNode.graphNode);
+			heap.insert(phNode);
+		}
+
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+		for(int t = 0; t < numThreads; t++) {
+			threads.add(new Thread() {
+				public void run() {
+					ThreadLocalRandom r = ThreadLocalRandom.current();
+					while (remaining.get() > 0) {
+						GraphNode<Integer> node = nodes.get(r.nextInt(testSize));
+						int current = heap.getKey(node);
+						if (current > 0)
+							heap.decreaseKey(node, r.nextInt(current));
+					}
+				}
+			});
+			threads.add(new Thread() {
+				public void run() {
+					while (remaining.get() > 0) {
+						PHNode<Integer> min = heap.deleteMin();
+						if (min == null)
+							continue;
+						seen.incrementAndGet(min.graphNode.id);
+						remaining.decrementAndGet();
+					}
+				}
+			});
+		}
+		for(Thread thread : threads)
+			thread.start();
+		for(Thread thread : threads)
+			thread.join();
+
+		for(int i = 0; i < seen.length(); i++)
+			if (!assertEquals("Popped once", true, seen.get(i) == 1)) {
+				System.out.println(i + " popped " + seen.get(i) + " times");
+				break;
+			}
+		assertEquals("Empty", true, heap.deleteMin() == null);
+	}
+}
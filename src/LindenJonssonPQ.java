@@ -0,0 +1,204 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock-free skip-list priority queue after Linden and Jonsson, "A
+ * Skiplist-Based Concurrent Priority Queue with Minimal Memory Contention".
+ * Items are ordered by (key, id).
+ *
+ * deleteMin() does not unlink the node it takes. It sets the mark on its
+ * predecessor's bottom level link, which both claims the node and stops
+ * inserts from landing in front of it, so the deleted nodes always form a
+ * prefix of the bottom level. Pops walk over that prefix and mark the next
+ * link along; only once a pop has walked over boundOffset deleted nodes does
+ * it swing head past all of them with a single CAS and then trim the upper
+ * levels. Concurrent pops therefore touch a different link each instead of
+ * all fighting over the head, as with pollFirst() on a skip list set.
+ *
+ * Unlinked nodes are left to the garbage collector; the paper's checks for
+ * nodes still being inserted are only needed for manual reclamation.
+ */
+public class LindenJonssonPQ<E> {
+	private static final int MAX_LEVEL = 32;
+
+	private final Node<E> head;
+	private final Node<E> tail;
+	// Deleted nodes a pop may walk over before it unlinks them.
+	private final int boundOffset;
+
+	private static final class Node<E> {
+		final E item;
+		final int key;
+		final int id;
+		// Bottom level link; marked once the node it points to is deleted.
+		final AtomicMarkableReference<Node<E>> next0;
+		// Upper levels; next.get(0) is unused.
+		final AtomicReferenceArray<Node<E>> next;
+
+		Node(E item, int key, int id, int height) {
+			this.item = item;
+			this.key = key;
+			this.id = id;
+			this.next0 = new AtomicMarkableReference<Node<E>>(null, false);
+			this.next = new AtomicReferenceArray<Node<E>>(height);
+		}
+
+		Node<E> next(int level) {
+			return level == 0 ? next0.getReference() : next.get(level);
+		}
+
+		// A node whose successor is deleted is deleted itself. This misses
+		// the last node of the deleted prefix, which is harmless.
+		boolean deleted() {
+			return next0.isMarked();
+		}
+	}
+
+	public LindenJonssonPQ() {
+		this(32);
+	}
+
+	/**
+	 * @param boundOffset how many deleted nodes a pop walks over before it
+	 * unlinks them; larger values mean fewer CASes on the head
+	 */
+	public LindenJonssonPQ(int boundOffset) {
+		this.boundOffset = Math.max(1, boundOffset);
+		tail = new Node<E>(null, Integer.MAX_VALUE, Integer.MAX_VALUE, 1);
+		head = new Node<E>(null, Integer.MIN_VALUE, Integer.MIN_VALUE, MAX_LEVEL);
+		head.next0.set(tail, false);
+		for (int i = 1; i < MAX_LEVEL; i++)
+			head.next.set(i, tail);
+	}
+
+	private boolean less(Node<E> node, int key, int id) {
+		return node != tail && (node.key < key || (node.key == key && node.id < id));
+	}
+
+	/**
+	 * Finds the predecessor and successor of (key, id) on every level,
+	 * moving past deleted nodes.
+	 *
+	 * @return the last deleted node passed on the bottom level, or null
+	 */
+	private Node<E> locatePreds(int key, int id, Node<E>[] preds, Node<E>[] succs) {
+		Node<E> x = head;
+		Node<E> del = null;
+		for (int i = MAX_LEVEL - 1; i >= 0; i--) {
+			Node<E> next;
+			while (true) {
+				next = x.next(i);
+				if (next == tail)
+					break;
+				boolean deleted = i == 0 ? x.next0.isMarked() : next.deleted();
+				if (!deleted && !less(next, key, id))
+					break;
+				if (i == 0 && deleted)
+					del = next;
+				x = next;
+			}
+			preds[i] = x;
+			succs[i] = next;
+		}
+		return del;
+	}
+
+	/**
+	 * @return a MAX_LEVEL array for locatePreds() to fill in
+	 */
+	@SuppressWarnings("unchecked")
+	private static <E> Node<E>[] newLevels() {
+		return (Node<E>[])new Node<?>[MAX_LEVEL];
+	}
+
+	private static int randomLevel() {
+		int bits = ThreadLocalRandom.current().nextInt() | (1 << (MAX_LEVEL - 1));
+		return Integer.numberOfTrailingZeros(bits) + 1;
+	}
+
+	public void insert(E item, int key, int id) {
+		int height = randomLevel();
+		Node<E> node = new Node<E>(item, key, id, height);
+		Node<E>[] preds = newLevels();
+		Node<E>[] succs = newLevels();
+		Node<E> del;
+		// The CAS only succeeds on an unmarked link, i.e. behind the prefix.
+		do {
+			del = locatePreds(key, id, preds, succs);
+			node.next0.set(succs[0], false);
+		} while (!preds[0].next0.compareAndSet(succs[0], node, false, false));
+
+		for (int i = 1; i < height; ) {
+			// Near the deleted prefix the upper levels would only be trimmed
+			// again, so stop raising the node.
+			if (node.deleted() || succs[i] == del || (succs[i] != tail && succs[i].deleted()))
+				break;
+			node.next.set(i, succs[i]);
+			if (preds[i].next.compareAndSet(i, succs[i], node))
+				i++;
+			else {
+				del = locatePreds(key, id, preds, succs);
+				if (succs[0] != node)
+					break;
+			}
+		}
+	}
+
+	/**
+	 * @return an item with the smallest (key, id), or null if the queue is
+	 * empty
+	 */
+	public E deleteMin() {
+		Node<E> obsHead = head.next0.getReference();
+		Node<E> x = head;
+		int offset = 0;
+		boolean[] marked = new boolean[1];
+		Node<E> next;
+		while (true) {
+			next = x.next0.get(marked);
+			if (next == tail)
+				return null;
+			if (marked[0]) {
+				x = next;
+				offset++;
+				continue;
+			}
+			if (x.next0.compareAndSet(next, next, false, true))
+				break;
+		}
+
+		// x is deleted too, and stays as the head of the prefix.
+		if (offset >= boundOffset && head.next0.getReference() == obsHead
+		    && head.next0.compareAndSet(obsHead, x, true, true))
+			restructure();
+		return next.item;
+	}
+
+	/**
+	 * Swings the head's upper level links past the deleted nodes.
+	 */
+	private void restructure() {
+		for (int i = MAX_LEVEL - 1; i > 0; i--) {
+			Node<E> first = head.next.get(i);
+			Node<E> cur = first;
+			while (cur != tail && cur.deleted())
+				cur = cur.next.get(i);
+			if (cur != first)
+				head.next.compareAndSet(i, first, cur);
+		}
+	}
+
+	public boolean isEmpty() {
+		Node<E> x = head;
+		boolean[] marked = new boolean[1];
+		while (true) {
+			Node<E> next = x.next0.get(marked);
+			if (next == tail)
+				return true;
+			if (!marked[0])
+				return false;
+			x = next;
+		}
+	}
+}
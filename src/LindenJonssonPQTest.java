@@ -0,0 +1,118 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Tester for LindenJonssonPQ. Serial pops must come out in (key, id) order,
+ * also across inserts that land right behind the deleted prefix; concurrent
+ * producers and consumers must pop every item once.
+ */
+public class LindenJonssonPQTest {
+
+	private final int testSize = 100000;
+	private final int numThreads = 4;
+
+	public static void main(String[] args) throws InterruptedException {
+		LindenJonssonPQTest test = new LindenJonssonPQTest();
+		for (int bound : new int[] {1, 32}) {
+			test.testSerial(bound);
+			test.testInterleaved(bound);
+			test.testConcurrent(bound);
+		}
+	}
+
+	public boolean assertEquals(String title, boolean test, boolean result)
+	{
+		if(test != result)
+			System.out.println(title+": failed!");
+		return test == result;
+	}
+
+	public void testSerial(int bound) {
+		System.out.println("Test Serial (bound " + bound + ")");
+		LindenJonssonPQ<int[]> queue = new LindenJonssonPQ<int[]>(bound);
+		for(int i = 0; i < testSize; i++) {
+			// Few distinct keys, so the ids have to break the ties.
+			int key = (int)(100 * Rnd.dbl());
+			queue.insert(new int[] {key, i}, key, i);
+		}
+
+		int[] last = {Integer.MIN_VALUE, Integer.MIN_VALUE};
+		int popped = 0;
+		int[] min;
+		while ((min = queue.deleteMin()) != null) {
+			boolean ordered = min[0] > last[0] || (min[0] == last[0] && min[1] > last[1]);
+			if (!assertEquals("Order", true, ordered))
+				break;
+			last = min;
+			popped++;
+		}
+		assertEquals("Count", true, popped == testSize);
+		assertEquals("Empty", true, queue.isEmpty());
+	}
+
+	/**
+	 * Pops and inserts alternate, and new keys are often smaller than ones
+	 * already popped, so they have to go in right behind the deleted prefix.
+	 */
+	public void testInterleaved(int bound) {
+		System.out.println("Test Interleaved (bound " + bound + ")");
+		LindenJonssonPQ<Integer> queue = new LindenJonssonPQ<Integer>(bound);
+		PriorityQueue<Integer> expected = new PriorityQueue<Integer>();
+		for(int i = 0; i < testSize; i++) {
+			int key = (int)(1000 * Rnd.dbl());
+			queue.insert(key, key, i);
+			expected.add(key);
+			if (i % 3 == 2) {
+				Integer min = queue.deleteMin();
+				if (!assertEquals("Min", true, min != null && min.intValue() == expected.poll()))
+					return;
+			}
+		}
+		Integer min;
+		while ((min = queue.deleteMin()) != null)
+			if (!assertEquals("Min", true, min.intValue() == expected.poll()))
+				return;
+		assertEquals("Count", true, expected.isEmpty());
+	}
+
+	public void testConcurrent(int bound) throws InterruptedException {
+		System.out.println("Test Concurrent (bound " + bound + ")");
+		final LindenJonssonPQ<Integer> queue = new LindenJonssonPQ<Integer>(bound);
+		final AtomicIntegerArray seen = new AtomicIntegerArray(testSize * numThreads);
+		final AtomicInteger remaining = new AtomicInteger(testSize * numThreads);
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+
+		for(int t = 0; t < numThreads; t++) {
+			final int offset = t * testSize;
+			threads.add(new Thread() {
+				public void run() {
+					for(int i = 0; i < testSize; i++)
+						queue.insert(offset + i, ThreadLocalRandom.current().nextInt(1000000), offset + i);
+				}
+			});
+			threads.add(new Thread() {
+				public void run() {
+					while (remaining.get() > 0) {
+						Integer min = queue.deleteMin();
+						if (min == null)
+							continue;
+						seen.incrementAndGet(min);
+						remaining.decrementAndGet();
+					}
+				}
+			});
+		}
+		for(Thread thread : threads)
+			thread.start();
+		for(Thread thread : threads)
+			thread.join();
+
+		for(int i = 0; i < seen.length(); i++)
+			if (!assertEquals("Popped once", true, seen.get(i) == 1)) {
+				System.out.println(i + " popped " + seen.get(i) + " times");
+				break;
+			}
+		assertEquals("Empty", true, queue.deleteMin() == null);
+	}
+}
@@ -0,0 +1,69 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * VertexQueue on a LindenJonssonPQ, which has no decreaseKey(). Keys are
+ * kept in GraphNode.distance; decreaseKey() lowers it by CAS and queues
+ * another entry, and deleteMin() drops entries whose distance is no longer
+ * the vertex's. Keys only ever go down, so each vertex has exactly one
+ * current entry.
+ */
+public class LindenJonssonQueue<T> implements VertexQueue<T> {
+	@SuppressWarnings("rawtypes")
+	private static final AtomicIntegerFieldUpdater<GraphNode> DISTANCE =
+		AtomicIntegerFieldUpdater.newUpdater(GraphNode.class, "distance");
+
+	private final LindenJonssonPQ<PHNode<T>> pq;
+	// Vertices with a current entry.
+	private final AtomicInteger size = new AtomicInteger(0);
+
+	public LindenJonssonQueue() {
+		this(new LindenJonssonPQ<PHNode<T>>());
+	}
+
+	public LindenJonssonQueue(LindenJonssonPQ<PHNode<T>> pq) {
+		this.pq = pq;
+	}
+
+	private void push(GraphNode<T> node, int key) {
+		PHNode<T> entry = new PHNode<T>();
+		entry.graphNode = node;
+		entry.distance = key;
+		pq.insert(entry, key, node.id);
+	}
+
+	public void insert(GraphNode<T> node, int key) {
+		node.distance = key;
+		size.getAndIncrement();
+		push(node, key);
+	}
+
+	public GraphNode<T> deleteMin() {
+		PHNode<T> entry;
+		while ((entry = pq.deleteMin()) != null) {
+			if (entry.distance == entry.graphNode.distance) {
+				size.getAndDecrement();
+				return entry.graphNode;
+			}
+		}
+		return null;
+	}
+
+	public void decreaseKey(GraphNode<T> node, int key) {
+		int current;
+		while (key < (current = node.distance)) {
+			if (DISTANCE.compareAndSet(node, current, key)) {
+				push(node, key);
+				return;
+			}
+		}
+	}
+
+	public int getKey(GraphNode<T> node) {
+		return node.distance;
+	}
+
+	public int size() {
+		return size.get();
+	}
+}
@@ -0,0 +1,147 @@
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A relaxed concurrent priority queue made of several sequential binary
+ * heaps, each behind a try-lock. insert() puts the item into a random heap;
+ * deleteMin() compares the minimums of two random heaps (read without
+ * locking) and pops from the better one. If a lock is taken the thread just
+ * picks again, so nobody ever waits on a single root.
+ *
+ * The price is order: a pop returns an item close to the minimum, not
+ * necessarily the minimum itself. With c * p heaps for p threads the error
+ * stays around c * p ranks. Callers must be able to live with that, e.g. a
+ * label-correcting shortest path search.
+ */
+public class MultiQueue<E> {
+	private static final long EMPTY = Long.MAX_VALUE;
+
+	private final Heap<E>[] heaps;
+
+	/**
+	 * A binary min-heap of items on parallel key/item arrays.
+	 */
+	private static class Heap<E> {
+		final AtomicBoolean lock = new AtomicBoolean(false);
+		// keys[0] while the heap is not empty, else EMPTY.
+		volatile long top = EMPTY;
+		int[] keys = new int[16];
+		Object[] items = new Object[16];
+		int size;
+
+		void add(E item, int key) {
+			if (size == keys.length) {
+				keys = Arrays.copyOf(keys, size * 2);
+				items = Arrays.copyOf(items, size * 2);
+			}
+			int i = size++;
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (keys[parent] <= key)
+					break;
+				keys[i] = keys[parent];
+				items[i] = items[parent];
+				i = parent;
+			}
+			keys[i] = key;
+			items[i] = item;
+			top = keys[0];
+		}
+
+		@SuppressWarnings("unchecked")
+		E poll() {
+			E min = (E)items[0];
+			int key = keys[--size];
+			Object item = items[size];
+			items[size] = null;
+			if (size > 0) {
+				int i = 0;
+				while (true) {
+					int child = 2 * i + 1;
+					if (child >= size)
+						break;
+					if (child + 1 < size && keys[child + 1] < keys[child])
+						child++;
+					if (key <= keys[child])
+						break;
+					keys[i] = keys[child];
+					items[i] = items[child];
+					i = child;
+				}
+				keys[i] = key;
+				items[i] = item;
+			}
+			top = size > 0 ? keys[0] : EMPTY;
+			return min;
+		}
+	}
+
+	/**
+	 * @param numHeaps number of heaps; a small multiple of the number of
+	 * threads using the queue
+	 */
+	public MultiQueue(int numHeaps) {
+		heaps = newHeaps(Math.max(1, numHeaps));
+		for (int i = 0; i < heaps.length; i++)
+			heaps[i] = new Heap<E>();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <E> Heap<E>[] newHeaps(int n) {
+		return (Heap<E>[])new Heap<?>[n];
+	}
+
+	public void insert(E item, int key) {
+		ThreadLocalRandom r = ThreadLocalRandom.current();
+		while (true) {
+			Heap<E> heap = heaps[r.nextInt(heaps.length)];
+			if (heap.lock.compareAndSet(false, true)) {
+				try {
+					heap.add(item, key);
+				} finally {
+					heap.lock.set(false);
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Pops an item with a small key. After a run of misses on empty heaps it
+	 * falls back to scanning all of them.
+	 *
+	 * @return the item, or null if every heap looked empty
+	 */
+	public E deleteMin() {
+		ThreadLocalRandom r = ThreadLocalRandom.current();
+		int misses = 0;
+		while (true) {
+			Heap<E> heap;
+			if (misses < heaps.length) {
+				Heap<E> a = heaps[r.nextInt(heaps.length)];
+				Heap<E> b = heaps[r.nextInt(heaps.length)];
+				heap = b.top < a.top ? b : a;
+			}
+			else {
+				heap = heaps[0];
+				for (Heap<E> h : heaps)
+					if (h.top < heap.top)
+						heap = h;
+			}
+			if (heap.top == EMPTY) {
+				if (misses++ >= heaps.length)
+					return null;
+				continue;
+			}
+			if (!heap.lock.compareAndSet(false, true))
+				continue;
+			try {
+				if (heap.size > 0)
+					return heap.poll();
+			} finally {
+				heap.lock.set(false);
+			}
+		}
+	}
+}
@@ -0,0 +1,86 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Tester for MultiQueue. With a single heap pops must come out in order;
+ * with several heaps and threads every item must still come out once.
+ */
+public class MultiQueueTest {
+
+	private final int testSize = 100000;
+	private final int numThreads = 4;
+
+	public static void main(String[] args) throws InterruptedException {
+		MultiQueueTest test = new MultiQueueTest();
+		test.testSerial();
+		test.testConcurrent();
+	}
+
+	public boolean assertEquals(String title, boolean test, boolean result)
+	{
+		if(test != result)
+			System.out.println(title+": failed!");
+		return test == result;
+	}
+
+	public void testSerial() {
+		System.out.println("Test Serial");
+		MultiQueue<Integer> queue = new MultiQueue<Integer>(1);
+		for(int i = 0; i < testSize; i++) {
+			int key = (int)(Integer.MAX_VALUE * Rnd.dbl());
+			queue.insert(key, key);
+		}
+
+		int last = Integer.MIN_VALUE;
+		int popped = 0;
+		Integer min;
+		while ((min = queue.deleteMin()) != null) {
+			if (!assertEquals("Order", true, min >= last))
+				break;
+			last = min;
+			popped++;
+		}
+		assertEquals("Count", true, popped == testSize);
+	}
+
+	public void testConcurrent() throws InterruptedException {
+		System.out.println("Test Concurrent");
+		final MultiQueue<Integer> queue = new MultiQueue<Integer>(2 * numThreads);
+		final AtomicIntegerArray seen = new AtomicIntegerArray(testSize * numThreads);
+		final AtomicInteger remaining = new AtomicInteger(testSize * numThreads);
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+
+		for(int t = 0; t < numThreads; t++) {
+			final int offset = t * testSize;
+			threads.add(new Thread() {
+				public void run() {
+					for(int i = 0; i < testSize; i++)
+						queue.insert(offset + i, (int)(Integer.MAX_VALUE * ThreadLocalRandom.current().nextDouble()));
+				}
+			});
+			threads.add(new Thread() {
+				public void run() {
+					while (remaining.get() > 0) {
+						Integer min = queue.deleteMin();
+						if (min == null)
+							continue;
+						seen.incrementAndGet(min);
+						remaining.decrementAndGet();
+					}
+				}
+			});
+		}
+		for(Thread thread : threads)
+			thread.start();
+		for(Thread thread : threads)
+			thread.join();
+
+		for(int i = 0; i < seen.length(); i++)
+			if (!assertEquals("Popped once", true, seen.get(i) == 1)) {
+				System.out.println(i + " popped " + seen.get(i) + " times");
+				break;
+			}
+		assertEquals("Empty", true, queue.deleteMin() == null);
+	}
+}
@@ -1,18 +1,27 @@
 import java.util.*;
-import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class PHNode<T> {
 	public volatile GraphNode<T> parent;
-	public final ConcurrentLinkedQueue<GraphNode<T>> subHeaps;
+	// Head of the child list, which is linked through next. Shared between
+	// clones so a node keeps its children when it is copied elsewhere. Only
+	// reassigned by LFPairingHeap's recycler, while no other thread can see
+	// the node.
+	AtomicReference<PHNode<T>> children;
+	// Next sibling in the parent's child list.
+	public volatile PHNode<T> next;
 	public volatile GraphNode<T> graphNode;
 	public volatile int distance;
+	// A copy made by a recycling heap, which may reuse it once it is dead.
+	// Written before the copy is published and never changed after.
+	boolean pooled;
 	
 	public PHNode() {
-		subHeaps = new ConcurrentLinkedQueue<GraphNode<T>>();
+		children = new AtomicReference<PHNode<T>>(null);
 	}
 
 	private PHNode(PHNode<T> node) {
-		this.subHeaps = node.subHeaps;
+		this.children = node.children;
 		this.parent = node.parent;
 		this.graphNode = node.graphNode;
 		this.distance = node.distance;
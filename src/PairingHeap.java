@@ -1,106 +1,211 @@
-import java.util.Vector;
+import java.util.ArrayList;
 import java.util.concurrent.atomic.AtomicReference;
 
-
+/**
+ * A pairing heap in left-child/right-sibling form, shared between threads
+ * without locks.
+ *
+ * A node is never changed once other threads can see it. An operation reads
+ * the root, builds the nodes it would change as private copies (the node
+ * itself, and every node on the path down to it, since their slots have to
+ * point at the copies) and publishes them all with one compareAndSet() on
+ * root. If that CAS fails another operation got in first, and it starts over
+ * on the new root. Readers such as find() and returnMin() just walk whatever
+ * root they read.
+ *
+ * Copying instead of relinking in place is what makes the single CAS enough:
+ * cutting a node out and melding it back in touches several slots, and no
+ * other thread may see only some of them changed. The price is that every
+ * operation goes through the one root, and a lost CAS throws away the copies.
+ * Parent slots are not kept; find() hands back the path to a node instead.
+ */
 public class PairingHeap<T> {
 
-	AtomicReference<PairingHeapNode<T>> root;
-	
+	final AtomicReference<PairingHeapNode<T>> root;
+	// Path scratch for find(), per thread.
+	private final ThreadLocal<ArrayList<PairingHeapNode<T>>> paths = new ThreadLocal<ArrayList<PairingHeapNode<T>>>() {
+		protected ArrayList<PairingHeapNode<T>> initialValue() {
+			return new ArrayList<PairingHeapNode<T>>();
+		}
+	};
+
+	public PairingHeap()
+	{
+		root = new AtomicReference<PairingHeapNode<T>>(null);
+	}
+
 	public PairingHeap(Weighted<T> v)
 	{
-		PairingHeapNode<T> add = new PairingHeapNode<T>(this,new AtomicReference<PairingHeapNode<T>>(null),new AtomicReference<PairingHeapNode<T>>(null),new AtomicReference<PairingHeapNode<T>>(null),v);
-		root = new AtomicReference<PairingHeapNode<T>>(add);
+		root = new AtomicReference<PairingHeapNode<T>>(new PairingHeapNode<T>(this, v));
 	}
-	
+
+	/**
+	 * @return the smallest value, or null if the heap is empty
+	 */
 	public Weighted<T> returnMin()
 	{
-		return root.get().getValue();
+		PairingHeapNode<T> min = root.get();
+		return min == null ? null : min.getValue();
 	}
-	
+
 	/**
-	 * Link two Pairing Heaps together. 
-	 * 
-	 * TODO: Update parent reference of added root
-	 * 
+	 * Link two Pairing Heaps together. All of other's nodes are moved into
+	 * this heap, which leaves other empty.
+	 *
 	 * @param other
 	 */
 	public void link(PairingHeap<T> other)
 	{
-		//Lower tree becomes the right most child
+		if(other == this) return;
+		PairingHeapNode<T> add = other.root.getAndSet(null);
+		if(add == null) return;
 		while(true)
 		{
-			if(other.root.get().getValue().getWeight() > root.get().getValue().getWeight())
-			{
-				//add this other pairing heap as a child of our root
-				//find the rightmost child node to append to
-				AtomicReference<PairingHeapNode<T>> sw = root.get().getLeftChild();
-				if(sw.get() != null)
-				{
-					while(sw.get().getRightSibling().get() != null)
-					{
-						sw = sw.get().getRightSibling();
-					}
-					
-					PairingHeapNode<T> add = other.root.get();
-					if(!sw.get().getRightSibling().compareAndSet(null, add)) continue;
-					else break;
-				}
-				else{// no children, add first child
-					if(!sw.compareAndSet(null, other.root.get())) continue;
-					else break;
-				}
-			}
-			else{ //link the other way
-				other.link(this);
-				root = other.root; // grab the new heap root (should be atomic?)
-				break;
-			}
+			PairingHeapNode<T> r = root.get();
+			if(root.compareAndSet(r, meld(copy(r), copy(add)))) return;
+		}
+	}
+
+	/**
+	 * @return a private copy of node, with the same value and slots, or null
+	 */
+	private PairingHeapNode<T> copy(PairingHeapNode<T> node)
+	{
+		if(node == null) return null;
+		return newNode(node.getValue(), node.getLeftChild().get(), node.getRightSibling().get());
+	}
+
+	private PairingHeapNode<T> newNode(Weighted<T> value, PairingHeapNode<T> leftChild, PairingHeapNode<T> rightSibling)
+	{
+		return new PairingHeapNode<T>(this, new AtomicReference<PairingHeapNode<T>>(null),
+		                              new AtomicReference<PairingHeapNode<T>>(rightSibling),
+		                              new AtomicReference<PairingHeapNode<T>>(leftChild), value);
+	}
+
+	/**
+	 * Melds two private heaps: the root with the larger weight becomes the
+	 * leftmost child of the other. Both roots may be changed.
+	 *
+	 * @return the root of the melded heap
+	 */
+	private PairingHeapNode<T> meld(PairingHeapNode<T> a, PairingHeapNode<T> b)
+	{
+		if(a == null) return b;
+		if(b == null) return a;
+		if(b.getValue().getWeight() < a.getValue().getWeight())
+		{
+			PairingHeapNode<T> t = a;
+			a = b;
+			b = t;
 		}
+		b.getRightSibling().set(a.getLeftChild().get());
+		a.getLeftChild().set(b);
+		return a;
 	}
-	
+
 	/**
-	 * Search for the atomic reference matching the provided Weighted parameter. 
-	 * 
-	 * TODO: Pruning - Stop searching once all remaining children are higher value than val
-	 * 
+	 * Pairs up a chain of siblings: first left to right in pairs, then
+	 * folding the winners right to left. The chain itself is left alone;
+	 * each sibling is copied as it is taken off.
+	 *
+	 * @return the root of the merged private heap, or null if first is null
+	 */
+	private PairingHeapNode<T> pairUp(PairingHeapNode<T> first)
+	{
+		ArrayList<PairingHeapNode<T>> list = new ArrayList<PairingHeapNode<T>>();
+		for(PairingHeapNode<T> iter = first; iter != null; iter = iter.getRightSibling().get())
+			list.add(newNode(iter.getValue(), iter.getLeftChild().get(), null));
+		if(list.isEmpty()) return null;
+
+		int pairs = 0;
+		for(int i = 0; i + 1 < list.size(); i += 2)
+			list.set(pairs++, meld(list.get(i), list.get(i + 1)));
+		if(list.size() % 2 == 1)
+			list.set(pairs++, list.get(list.size() - 1));
+		PairingHeapNode<T> ret = list.get(pairs - 1);
+		for(int i = pairs - 2; i >= 0; i--)
+			ret = meld(list.get(i), ret);
+		return ret;
+	}
+
+	/**
+	 * Search for the node matching the provided Weighted parameter: same
+	 * weight, and the same object unless val holds none.
+	 *
+	 * The heap is walked as the binary tree it is stored as, depth first, so
+	 * path always holds the way down from start: each node's successor on it
+	 * is either its left child or its right sibling. Children are never
+	 * lighter than their parent, so the children of a node heavier than val
+	 * are skipped; its siblings are still searched.
+	 *
 	 * @param val
 	 * @param start Should be the root of the heap if searching the complete heap
-	 * @return
+	 * @param path filled with the nodes from start down to the match
+	 * @return false if there is no match
 	 */
-	private AtomicReference<PairingHeapNode<T>> find(Weighted<T> val, AtomicReference<PairingHeapNode<T>> start)
-	{		
-		//Queue of nodes to search through
-		//For each node in the queue, check the node, all its right siblings, and add all left children to the queue
-		Vector<AtomicReference<PairingHeapNode<T>>> checks = new Vector<AtomicReference<PairingHeapNode<T>>>();
-		checks.add(start);
-		while(checks.size() > 0)
-		{			
-			AtomicReference<PairingHeapNode<T>> iter = checks.remove(0);
-			
-			if(iter.get().getValue().compareTo(val) == 0)
-				return iter;
-			
-			if(iter.get().getLeftChild().get() != null)
-				checks.add(iter.get().getLeftChild());
-			
-			for(AtomicReference<PairingHeapNode<T>> iter2 = iter.get().getRightSibling(); iter2.get() != null; iter2 = iter2.get().getRightSibling())
+	private boolean find(Weighted<T> val, PairingHeapNode<T> start, ArrayList<PairingHeapNode<T>> path)
+	{
+		int weight = val.getWeight();
+		T obj = val.get();
+		path.clear();
+		PairingHeapNode<T> node = start;
+		while(true)
+		{
+			//Visit node and keep going left while a match could be below
+			while(node != null)
 			{
-				if(iter2.get().getValue().compareTo(val) == 0)
-					return iter2;
-				
-				if(iter2.get().getLeftChild().get() != null)
-					checks.add(iter2.get().getLeftChild());
+				path.add(node);
+				int w = node.getValue().getWeight();
+				if(w == weight && (obj == null || node.getValue().get() == obj))
+					return true;
+				node = w <= weight ? node.getLeftChild().get() : null;
+			}
+			//The last node's children are done: move on to its right sibling,
+			//backing out of nodes whose siblings are done too
+			while(true)
+			{
+				if(path.isEmpty()) return false;
+				PairingHeapNode<T> last = path.get(path.size() - 1);
+				node = last.getRightSibling().get();
+				if(node != null) break;
+				path.remove(path.size() - 1);
+				while(!path.isEmpty() && path.get(path.size() - 1).getRightSibling().get() == last)
+					last = path.remove(path.size() - 1);
 			}
 		}
-		
-		return null;
 	}
-	
-	private AtomicReference<PairingHeapNode<T>> findAtomic(Weighted<T> val)
+
+	/**
+	 * Copies the nodes on path but the last, pointing the slot that held the
+	 * last one at replacement instead.
+	 *
+	 * @return the root of the copy, or replacement if path is just the root
+	 */
+	private PairingHeapNode<T> replace(ArrayList<PairingHeapNode<T>> path, PairingHeapNode<T> replacement)
 	{
-		return find(val,root);
+		PairingHeapNode<T> ret = replacement;
+		for(int i = path.size() - 2; i >= 0; i--)
+		{
+			PairingHeapNode<T> node = path.get(i);
+			if(node.getLeftChild().get() == path.get(i + 1))
+				ret = newNode(node.getValue(), ret, node.getRightSibling().get());
+			else
+				ret = newNode(node.getValue(), node.getLeftChild().get(), ret);
+		}
+		return ret;
 	}
-	
+
+	/**
+	 * @return the parent of the last node on path, or null if it is the root
+	 */
+	private PairingHeapNode<T> parentOf(ArrayList<PairingHeapNode<T>> path)
+	{
+		int i = path.size() - 1;
+		while(i > 0 && path.get(i - 1).getRightSibling().get() == path.get(i))
+			i--;
+		return i == 0 ? null : path.get(i - 1);
+	}
+
 	/**
 	 * Check that this value is in the heap
 	 * @param val
@@ -108,64 +213,112 @@ public class PairingHeap<T> {
 	 */
 	public boolean find(Weighted<T> val)
 	{
-		if(find(val, root) == null) return false;
-		return true;
+		ArrayList<PairingHeapNode<T>> path = paths.get();
+		boolean found = find(val, root.get(), path);
+		path.clear();
+		return found;
 	}
-	
+
 	/**
 	 * Insert node into heap.
-	 * 
-	 * TODO: Make sure the top level heap is returned to caller
+	 *
 	 * @param value
 	 */
 	public void insert(Weighted<T> value)
 	{
-		//Create a new heap with this value as root
-		PairingHeap<T> temp = new PairingHeap<T>(value);
-		
-		//Link our heap with this new heap
-		link(temp);
+		while(true)
+		{
+			PairingHeapNode<T> r = root.get();
+			if(root.compareAndSet(r, meld(copy(r), new PairingHeapNode<T>(this, value)))) return;
+		}
 	}
-	
+
+	/**
+	 * Removes a node with the same weight as value, if there is one. Its
+	 * children are paired up and melded back in at the root.
+	 *
+	 * @param value
+	 */
 	public void remove(Weighted<T> value)
 	{
-		
+		ArrayList<PairingHeapNode<T>> path = paths.get();
+		try {
+			while(true)
+			{
+				PairingHeapNode<T> r = root.get();
+				if(!find(value, r, path)) return;
+
+				PairingHeapNode<T> node = path.get(path.size() - 1);
+				PairingHeapNode<T> rest = replace(path, node.getRightSibling().get());
+				if(root.compareAndSet(r, meld(rest, pairUp(node.getLeftChild().get())))) return;
+			}
+		} finally {
+			path.clear();
+		}
 	}
-	
+
 	/**
 	 * Decrease the key value of the value stored in the heap
 	 * If no change happens, the matching node has not been found and cannot be updated
-	 * 
-	 * TODO: Update the ordering of nodes if the decrease key changes the value of the node to less than its parent (link with new heap)
-	 * 
+	 *
+	 * If the node drops below its parent it is cut out, subtree and all, and
+	 * melded back in at the root. A larger weight is allowed too: the node's
+	 * children are then paired up and moved back to the root with it, so
+	 * nothing ends up below a heavier parent.
+	 *
 	 * @param val
 	 * @param newWeight
 	 */
 	public void decreaseKey(Weighted<T> val, int newWeight)
 	{
-		AtomicReference<PairingHeapNode<T>> change = findAtomic(val);
-		
-		//continue until no value to change exists
-		while(change != null)
-		{
-			PairingHeapNode<T> old = change.get();
-			Weighted<T> nv = new Weighted<T>(val.get(), newWeight);
-			PairingHeapNode<T> t = new PairingHeapNode<T>(this, change.get().getParent(), change.get().getRightSibling(),change.get().getLeftChild(),nv);
-			
-			//something changed, try again
-			if(!change.compareAndSet(old, t))
+		ArrayList<PairingHeapNode<T>> path = paths.get();
+		try {
+			while(true)
 			{
-				change = findAtomic(val);
-				continue;
+				PairingHeapNode<T> r = root.get();
+				if(!find(val, r, path)) return;
+
+				PairingHeapNode<T> node = path.get(path.size() - 1);
+				int oldWeight = node.getValue().getWeight();
+				Weighted<T> value = new Weighted<T>(node.getValue().get(), newWeight);
+				PairingHeapNode<T> parent = parentOf(path);
+				PairingHeapNode<T> newRoot;
+				if(newWeight <= oldWeight && (parent == null || parent.getValue().getWeight() <= newWeight))
+					newRoot = replace(path, newNode(value, node.getLeftChild().get(), node.getRightSibling().get()));
+				else
+				{
+					PairingHeapNode<T> rest = replace(path, node.getRightSibling().get());
+					if(newWeight < oldWeight)
+						newRoot = meld(rest, newNode(value, node.getLeftChild().get(), null));
+					else
+						newRoot = meld(meld(rest, pairUp(node.getLeftChild().get())), newNode(value, null, null));
+				}
+				if(root.compareAndSet(r, newRoot)) return;
 			}
-			else
-				return;
+		} finally {
+			path.clear();
 		}
 	}
-	
-	public void deleteMin()
+
+	/**
+	 * Pops the smallest value: the root's children are paired up in two
+	 * passes and the result becomes the new root.
+	 *
+	 * @return the popped value, or null if the heap is empty
+	 */
+	public Weighted<T> deleteMin()
+	{
+		while(true)
+		{
+			PairingHeapNode<T> min = root.get();
+			if(min == null) return null;
+			if(root.compareAndSet(min, pairUp(min.getLeftChild().get()))) return min.getValue();
+		}
+	}
+
+	public boolean isEmpty()
 	{
-		
+		return root.get() == null;
 	}
-	
+
 }
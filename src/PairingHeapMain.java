@@ -4,11 +4,14 @@ public class PairingHeapMain {
 	/**
 	 * @param args
 	 */
-	public static void main(String[] args) {
+	public static void main(String[] args) throws InterruptedException {
 		PairingHeapTest mytest = new PairingHeapTest();
 		mytest.init();
 		
 		mytest.testFind();
+		mytest.testDeleteMin();
+		mytest.testConcurrent();
+		mytest.testConcurrentDecreaseKey();
 		
 		
 
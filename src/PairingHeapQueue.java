@@ -0,0 +1,44 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * VertexQueue on PairingHeap. Keys are kept in GraphNode.distance. The heap
+ * has to search for the node to change, so decreaseKey() costs up to a walk
+ * over the heap, and it holds the vertex's monitor so the key and the heap
+ * entry change together.
+ */
+public class PairingHeapQueue<T> implements VertexQueue<T> {
+	private final PairingHeap<GraphNode<T>> heap = new PairingHeap<GraphNode<T>>();
+	// PairingHeap keeps no count.
+	private final AtomicInteger size = new AtomicInteger(0);
+
+	public void insert(GraphNode<T> node, int key) {
+		node.distance = key;
+		heap.insert(new Weighted<GraphNode<T>>(node, key));
+		size.getAndIncrement();
+	}
+
+	public GraphNode<T> deleteMin() {
+		Weighted<GraphNode<T>> min = heap.deleteMin();
+		if (min == null)
+			return null;
+		size.getAndDecrement();
+		return min.get();
+	}
+
+	public void decreaseKey(GraphNode<T> node, int key) {
+		synchronized (node) {
+			if (key >= node.distance)
+				return;
+			heap.decreaseKey(new Weighted<GraphNode<T>>(node, node.distance), key);
+			node.distance = key;
+		}
+	}
+
+	public int getKey(GraphNode<T> node) {
+		return node.distance;
+	}
+
+	public int size() {
+		return size.get();
+	}
+}
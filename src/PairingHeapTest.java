@@ -1,4 +1,9 @@
+import java.util.ArrayList;
 import java.util.TreeSet;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 //import static org.junit.Assert.*;
 
 
@@ -90,4 +95,166 @@ public class PairingHeapTest {
 		}
 	}
 	
-}
\ No newline at end of file
+	/**
+	 * Pops everything and checks it comes out in order, after removing and
+	 * moving a few values around.
+	 */
+	public void testDeleteMin() {
+		System.out.println("Test DeleteMin");
+		PairingHeap<Integer> heap = new PairingHeap<Integer>();
+		TreeSet<Integer> expected = new TreeSet<Integer>();
+		while(expected.size() < testSize) {
+			int num = randSign() * (int)(Integer.MAX_VALUE * Rnd.dbl());
+			if(expected.add(num))
+				heap.insert(new Weighted<Integer>(null, num));
+		}
+		for(int i : (TreeSet<Integer>)expected.clone()) {
+			double r = Rnd.dbl();
+			if(r < 0.2) {
+				expected.remove(i);
+				heap.remove(new Weighted<Integer>(null, i));
+			}
+			else if(r < 0.4) {
+				int moved = i + randSign() * (int)(1000 * Rnd.dbl());
+				if(!expected.contains(moved)) {
+					expected.remove(i);
+					expected.add(moved);
+					heap.decreaseKey(new Weighted<Integer>(null, i), moved);
+				}
+			}
+		}
+		for(int i : expected) {
+			Weighted<Integer> min = heap.deleteMin();
+			if(!assertEquals("DeleteMin", true, min != null && min.getWeight() == i))
+				return;
+		}
+		assertEquals("DeleteMin Empty", true, heap.deleteMin() == null);
+	}
+
+	/**
+	 * Several threads insert and then pop at once; every value has to come
+	 * out exactly once and each thread has to see its pops in order.
+	 */
+	public void testConcurrent() throws InterruptedException {
+		System.out.println("Test Concurrent");
+		final int threads = 4;
+		final PairingHeap<Integer> heap = new PairingHeap<Integer>();
+		final ConcurrentLinkedQueue<Integer> popped = new ConcurrentLinkedQueue<Integer>();
+		final boolean[] ordered = new boolean[] { true };
+		final CyclicBarrier inserted = new CyclicBarrier(threads);
+		ArrayList<Thread> workers = new ArrayList<Thread>();
+		for(int t = 0; t < threads; t++) {
+			final int base = t * testSize;
+			workers.add(new Thread() {
+				public void run() {
+					for(int i = 0; i < testSize; i++)
+						heap.insert(new Weighted<Integer>(null, base + i));
+					try {
+						inserted.await();
+					} catch (InterruptedException e) {
+						return;
+					} catch (BrokenBarrierException e) {
+						return;
+					}
+					int last = Integer.MIN_VALUE;
+					for(int i = 0; i < testSize; i++) {
+						Weighted<Integer> min = heap.deleteMin();
+						if(min == null || min.getWeight() < last)
+							ordered[0] = false;
+						if(min != null) {
+							last = min.getWeight();
+							popped.add(last);
+						}
+					}
+				}
+			});
+		}
+		for(Thread w : workers)
+			w.start();
+		for(Thread w : workers)
+			w.join();
+		assertEquals("Concurrent Order", true, ordered[0]);
+		assertEquals("Concurrent Count", true, new TreeSet<Integer>(popped).size() == threads * testSize);
+		assertEquals("Concurrent Empty", true, heap.deleteMin() == null);
+	}
+
+	/**
+	 * Threads move their own values around with decreaseKey() and remove()
+	 * while others pop. Each value carries its own id, so a value popped
+	 * before its thread got to it is told apart from one that was lost.
+	 * Whatever is left afterwards has to pop in order and with its final
+	 * weight, and no value may come out twice.
+	 */
+	public void testConcurrentDecreaseKey() throws InterruptedException {
+		System.out.println("Test Concurrent DecreaseKey");
+		final int threads = 2;
+		final int size = 2000;
+		final int count = threads * size;
+		final PairingHeap<Integer> heap = new PairingHeap<Integer>();
+		final Weighted<Integer>[] values = newValues(count);
+		final AtomicIntegerArray seen = new AtomicIntegerArray(count);
+		final boolean[] removed = new boolean[count];
+		for(int i = 0; i < count; i++) {
+			values[i] = new Weighted<Integer>(i, (1 << 24) + (int)(1000000 * Rnd.dbl()));
+			heap.insert(values[i]);
+		}
+		ArrayList<Thread> workers = new ArrayList<Thread>();
+		for(int t = 0; t < threads; t++) {
+			final int base = t * size;
+			workers.add(new Thread() {
+				public void run() {
+					for(int i = base; i < base + size; i++) {
+						if(i % 10 == 0) {
+							heap.remove(values[i]);
+							removed[i] = true;
+						}
+						else {
+							int moved = values[i].getWeight() - 1 - (int)(100000 * Rnd.dbl());
+							heap.decreaseKey(values[i], moved);
+							values[i] = new Weighted<Integer>(values[i].get(), moved);
+						}
+					}
+				}
+			});
+			workers.add(new Thread() {
+				public void run() {
+					for(int i = 0; i < size / 4; i++) {
+						Weighted<Integer> min = heap.deleteMin();
+						if(min != null)
+							seen.incrementAndGet(min.get());
+					}
+				}
+			});
+		}
+		for(Thread w : workers)
+			w.start();
+		for(Thread w : workers)
+			w.join();
+
+		boolean ordered = true;
+		boolean current = true;
+		int last = Integer.MIN_VALUE;
+		Weighted<Integer> min;
+		while((min = heap.deleteMin()) != null) {
+			if(min.getWeight() < last)
+				ordered = false;
+			if(min.getWeight() != values[min.get()].getWeight())
+				current = false;
+			last = min.getWeight();
+			seen.incrementAndGet(min.get());
+		}
+		assertEquals("Concurrent DecreaseKey Order", true, ordered);
+		assertEquals("Concurrent DecreaseKey Weights", true, current);
+		for(int i = 0; i < count; i++)
+			if(!assertEquals("Concurrent DecreaseKey Once", true, seen.get(i) == 1 || (seen.get(i) == 0 && removed[i]))) {
+				System.out.println(i + " popped " + seen.get(i) + " times");
+				break;
+			}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Weighted<Integer>[] newValues(int n) {
+		return (Weighted<Integer>[])new Weighted<?>[n];
+	}
+
+}
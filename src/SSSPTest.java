@@ -0,0 +1,180 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Tester for the shortest path engines. Every engine is run on the same
+ * sparse random graph, which leaves some vertices out of reach, and its
+ * distances are compared with DijkstraSerial's slot by slot, so unreached
+ * vertices have to read Graph.UNREACHED everywhere.
+ */
+public class SSSPTest {
+
+	private final int size = 2000;
+	private final double density = 0.001;
+	private final int seed = 7;
+	private final int[] numWorkers = {1, 2, 4};
+	private int[] expected;
+
+	public static void main(String[] args) throws IOException {
+		SSSPTest test = new SSSPTest();
+		test.testSerial();
+		test.testDijkstra();
+		test.testDriver();
+		test.testSkiplist();
+		test.testConcurrent();
+		test.testDeltaStepping();
+		test.testHeavyWeights();
+	}
+
+	public boolean assertEquals(String title, int test, int result)
+	{
+		if(test != result)
+			System.out.println(title+": failed! ("+test+" != "+result+")");
+		return test == result;
+	}
+
+	private RandomGraph newGraph() {
+		return new RandomGraph(size, density, seed);
+	}
+
+	/**
+	 * Compares one run's distances with the serial ones. Stops at the first
+	 * mismatch.
+	 */
+	private void check(String title, int[] distances) {
+		assertEquals(title + " length", expected.length, distances.length);
+		for (int i = 0; i < expected.length && i < distances.length; i++)
+			if (!assertEquals(title + " vertex " + i, expected[i], distances[i]))
+				return;
+	}
+
+	public void testSerial() throws IOException {
+		System.out.println("Test Serial");
+		DijkstraSerial<Integer> d = new DijkstraSerial<Integer>(newGraph());
+		d.run();
+		expected = d.getDistances();
+		int unreached = 0;
+		for (int distance : expected)
+			if (distance == Graph.UNREACHED)
+				unreached++;
+		if (unreached == 0)
+			System.out.println("Test Serial: failed! (every vertex reached)");
+
+		d = new DijkstraSerial<Integer>(newGraph(), true);
+		d.run();
+		check("Test Serial (lazy)", d.getDistances());
+		for (boolean lazy : new boolean[]{false, true}) {
+			d = new DijkstraSerial<Integer>(CSRGraph.fromGraph(newGraph()), lazy);
+			d.run();
+			check("Test Serial (CSR, lazy " + lazy + ")", d.getDistances());
+		}
+	}
+
+	public void testDijkstra() throws IOException {
+		System.out.println("Test Dijkstra");
+		for (int t : numWorkers) {
+			for (int mode = 0; mode < 3; mode++) {
+				for (boolean recycling : new boolean[]{false, true}) {
+					Dijkstra<Integer> d = new Dijkstra<Integer>(newGraph(), t, false, mode == 1, mode == 2,
+					                                            LFPairingHeap.Pairing.TWO_PASS, recycling);
+					d.run();
+					check("Test Dijkstra (" + t + " workers, mode " + mode + ", recycling " + recycling + ")",
+					      d.getDistances());
+				}
+			}
+		}
+	}
+
+	public void testDriver() throws IOException {
+		System.out.println("Test Driver");
+		for (String queue : new String[]{"lfpairing", "pairing", "skiplist", "lindenjonsson"}) {
+			for (boolean lazy : new boolean[]{false, true}) {
+				DijkstraDriver<Integer> d = new DijkstraDriver<Integer>(newGraph(), 2,
+				                                                        DijkstraDriver.<Integer>newQueue(queue), lazy);
+				d.run();
+				check("Test Driver (" + queue + ", lazy " + lazy + ")", d.getDistances());
+			}
+		}
+	}
+
+	public void testSkiplist() throws IOException {
+		System.out.println("Test Skiplist");
+		for (boolean lazy : new boolean[]{false, true}) {
+			DijkstraSkiplist<Integer> d = new DijkstraSkiplist<Integer>(newGraph(), 2, lazy);
+			d.run();
+			check("Test Skiplist (lazy " + lazy + ")", d.getDistances());
+		}
+	}
+
+	public void testConcurrent() throws IOException {
+		System.out.println("Test Concurrent");
+		for (DijkstraConcurrent.QueueKind queue : DijkstraConcurrent.QueueKind.values()) {
+			for (int t : numWorkers) {
+				DijkstraConcurrent<Integer> d = new DijkstraConcurrent<Integer>(newGraph(), t, queue);
+				d.run();
+				check("Test Concurrent (" + queue + ", " + t + " workers)", d.getDistances());
+			}
+		}
+	}
+
+	public void testDeltaStepping() throws IOException {
+		System.out.println("Test DeltaStepping");
+		for (int t : numWorkers) {
+			DeltaStepping<Integer> d = new DeltaStepping<Integer>(newGraph(), t);
+			d.run();
+			check("Test DeltaStepping (" + t + " workers)", d.getDistances());
+			DeltaStepping<Integer> csr = new DeltaStepping<Integer>(CSRGraph.fromGraph(newGraph()), t);
+			csr.run();
+			check("Test DeltaStepping (CSR, " + t + " workers)", csr.getDistances());
+		}
+	}
+
+	/**
+	 * Weights far above the random graphs' 100, on the CSR graph and on a
+	 * snapshot of it. Distances scale with the weights.
+	 */
+	public void testHeavyWeights() throws IOException {
+		System.out.println("Test Heavy Weights");
+		int scale = 1000;
+		int[] light = expected;
+		expected = new int[light.length];
+		for (int i = 0; i < light.length; i++)
+			expected[i] = light[i] == Graph.UNREACHED ? Graph.UNREACHED : light[i] * scale;
+
+		File file = File.createTempFile("sssp", ".csr");
+		try {
+			heavyGraph(scale).save(file.getPath());
+			for (boolean loaded : new boolean[]{false, true}) {
+				String title = loaded ? "snapshot" : "CSR";
+				CSRGraph graph = loaded ? CSRGraph.load(file.getPath()) : heavyGraph(scale);
+				assertEquals("Test Heavy Weights (" + title + ") max weight", 100 * scale, graph.maxWeight);
+				if (loaded && (!graph.targets.isDirect() || graph.onHeap().targets.isDirect()))
+					System.out.println("Test Heavy Weights (snapshot): failed! (targets not mapped, or onHeap() kept the mapping)");
+				DijkstraSerial<Integer> serial = new DijkstraSerial<Integer>(graph);
+				serial.run();
+				check("Test Heavy Weights (" + title + ", serial)", serial.getDistances());
+				graph.reset();
+				DeltaStepping<Integer> delta = new DeltaStepping<Integer>(graph, 2);
+				delta.run();
+				check("Test Heavy Weights (" + title + ", delta stepping)", delta.getDistances());
+				graph = loaded ? CSRGraph.load(file.getPath()) : heavyGraph(scale);
+				Dijkstra<Integer> d = new Dijkstra<Integer>(graph, 2, false, false, false,
+				                                            LFPairingHeap.Pairing.TWO_PASS, false);
+				d.run();
+				check("Test Heavy Weights (" + title + ", Dijkstra)", d.getDistances());
+			}
+		} finally {
+			file.delete();
+		}
+		expected = light;
+	}
+
+	private CSRGraph heavyGraph(int scale) {
+		CSRGraph csr = CSRGraph.fromGraph(newGraph());
+		int[] weights = CSRGraph.toArray(csr.weights);
+		for (int e = 0; e < weights.length; e++)
+			weights[e] *= scale;
+		return new CSRGraph(CSRGraph.toArray(csr.offsets), CSRGraph.toArray(csr.targets), weights,
+		                    CSRGraph.toArray(csr.ids), csr.source);
+	}
+}
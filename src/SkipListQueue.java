@@ -0,0 +1,49 @@
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * VertexQueue on a ConcurrentSkipListSet ordered by GraphNode.distance and
+ * then id, so every vertex has exactly one place in the set and remove()
+ * finds it. decreaseKey() is a remove and a re-add under the vertex's
+ * monitor, since the key must not change while the vertex is in the set.
+ */
+public class SkipListQueue<T> implements VertexQueue<T> {
+	private final ConcurrentSkipListSet<GraphNode<T>> set =
+		new ConcurrentSkipListSet<GraphNode<T>>(new Comparator<GraphNode<T>>() {
+			public int compare(GraphNode<T> a, GraphNode<T> b) {
+				if (a.distance != b.distance)
+					return a.distance < b.distance ? -1 : 1;
+				return a.id < b.id ? -1 : (a.id == b.id ? 0 : 1);
+			}
+		});
+
+	public void insert(GraphNode<T> node, int key) {
+		node.distance = key;
+		set.add(node);
+	}
+
+	public GraphNode<T> deleteMin() {
+		return set.pollFirst();
+	}
+
+	public void decreaseKey(GraphNode<T> node, int key) {
+		synchronized (node) {
+			if (key >= node.distance)
+				return;
+			set.remove(node);
+			node.distance = key;
+			set.add(node);
+		}
+	}
+
+	public int getKey(GraphNode<T> node) {
+		return node.distance;
+	}
+
+	/**
+	 * Not constant time: ConcurrentSkipListSet counts its entries.
+	 */
+	public int size() {
+		return set.size();
+	}
+}
@@ -16,120 +16,26 @@ public class SnapGraph implements Graph<Integer> {
 	private String name;
 	private int connections,size;
 	
-	public SnapGraph(String filename)
+	/**
+	 * Loads a SNAP edge list through SnapReader, using every available core for
+	 * large files. Vertices get dense ids in order of first appearance; value
+	 * holds the id from the file. Only the object graph is kept; use SnapReader
+	 * directly for the CSR arrays.
+	 */
+	public SnapGraph(String filename) throws IOException
 	{
-		int expected_nodes = 0;
-		int expected_edges = 0;
-		double density = 0.0;
-		connections = 0;
-		
-		int firstNode = -1;
-		Scanner s = null;
-		ArrayList<GraphNode<Integer>> nodes = null;
-		TreeMap<Integer,GraphNode<Integer>> nodeMap = new TreeMap<Integer,GraphNode<Integer>>();
-		try
-		{
-			s = new Scanner(new BufferedReader(new FileReader(filename)));
-			String graphtype = s.nextLine();
-			String graphName = s.nextLine();
-			String graphProperties = s.nextLine();
-			String graphFormat = s.nextLine();
-			
-			name = graphName;
-			
-			try{
-				expected_nodes = Integer.parseInt(graphProperties.substring(graphProperties.indexOf(':')+2,graphProperties.indexOf('E')-1));
-				graphProperties = graphProperties.substring(graphProperties.indexOf(':') + 1);
-				expected_edges = Integer.parseInt(graphProperties.substring(graphProperties.indexOf(':')+2));
-				density = (double)(expected_edges)/expected_nodes;
-			}
-			catch(Exception E)
-			{
-				System.out.println("Error: " + expected_nodes + " " + expected_edges + " " + density);
-				E.printStackTrace();
-			}
-			
-			//nodes = new ArrayList<GraphNode<Integer>>(expected_nodes);
-			
-			int a = 0,b = 0;
-			while(s.hasNext())
-			{
-				a = s.nextInt();
-				b = s.nextInt();
-				
-				if(firstNode == -1)
-					firstNode = a;
-				
-				connections++;
-				
-				GraphNode<Integer> nodeA, nodeB;
-				
-				if(connections % (int)(expected_edges*.1) == 0)
-					System.out.println(connections + " (" + connections*100/expected_edges + "%) "+ a + " " + b);
-				
-				/*if(a > nodes.size() || b > nodes.size())
-				{
-					for(int i = nodes.size(); i <= Math.max(a, b); i++)
-					{
-						if(i >= nodes.size())
-							nodes.add(i,null);
-					}
-					
-				}*/
-				
-				if(!nodeMap.containsKey(a))
-				//if(nodes.get(a)==null)
-				{
-					//nodeA = new GraphNode<Integer>(a,a,(int)(expected_nodes*density));
-					nodeA = new GraphNode<Integer>(a,a,0);
-					nodeA.distance = Integer.MAX_VALUE - (maxWeight + 2);
-					nodeMap.put(a, nodeA);
-					//nodes.add(a,nodeA);
-				}
-				else
-				{
-					//nodeA = nodes.get(a);
-					nodeA = nodeMap.get(a);
-				}
-				
-				if(!nodeMap.containsKey(b))
-				//if(nodes.get(b)==null)
-				{
-					//nodeB = new GraphNode<Integer>(b,b,(int)(expected_nodes*density));
-					nodeB = new GraphNode<Integer>(b,b,0);
-					nodeB.distance = Integer.MAX_VALUE - (maxWeight + 2);
-					//nodes.add(b,nodeB);
-					nodeMap.put(b, nodeB);
-				}
-				else
-				{
-					//nodeB = nodes.get(b);
-					nodeB = nodeMap.get(b);
-				}
-				
-				nodeA.addConnection(nodeB, 1);
-
-			}
-		}
-		catch(Exception E)
-		{
-			System.out.println("Error at:" + s.nextLine());
-			E.printStackTrace();
-		}
-		
-		//source = nodes.get(0);
-		source = nodeMap.get(firstNode);
-		source.distance = 0;
-		
-		//clean up empty nodes
-		//while(nodes.contains(null))
-		//	nodes.remove(null);
-		
-		for(GraphNode<Integer> node : nodeMap.values())
-			if(node != null)
-				node.finalize();
+		this(filename, Runtime.getRuntime().availableProcessors());
+	}
+	
+	public SnapGraph(String filename, int loadThreads) throws IOException
+	{
+		SnapReader reader = new SnapReader(filename, loadThreads);
+		name = reader.getName();
+		connections = reader.getConnections();
+		CSRGraph csr = reader.getGraph();
 		
-		nodeList = nodeMap.values().toArray();
+		nodeList = csr.getNodes();
+		source = csr.getSource();
 		size = nodeList.length;
 		
 	}
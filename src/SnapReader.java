@@ -0,0 +1,318 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Fast loader for SNAP edge lists (http://snap.stanford.edu). Integers are
+ * parsed by hand straight out of NIO buffers. Vertex ids are remapped to dense
+ * ids in order of first appearance through an IntIntHashMap, and the
+ * undirected adjacency is laid out as a CSRGraph in two passes (count
+ * degrees, then fill) with every edge weighted 1.
+ *
+ * Large files are split into line aligned byte ranges which are memory mapped
+ * and parsed concurrently on a fork-join pool, each into its own edge buffer.
+ * The buffers are then remapped and merged in file order, so the result is
+ * the same as a serial load.
+ *
+ * Lines starting with '#' are header lines. As with SnapGraph, the second
+ * one is taken as the graph's name and a "Nodes: N Edges: M" line, if
+ * present, is used to size the buffers up front.
+ */
+public class SnapReader {
+	private static final int BUFFER_SIZE = 1 << 22;
+	// Files smaller than this are not worth splitting.
+	private static final long PARALLEL_THRESHOLD = 1 << 24;
+
+	private String name = "";
+	private int connections;
+	private int expectedNodes;
+	private CSRGraph graph;
+	private IntIntHashMap idMap;
+	private int[] rawIds;
+
+	public SnapReader(String filename) throws IOException {
+		this(filename, 1);
+	}
+
+	/**
+	 * @param numThreads number of threads to parse with; 1 reads serially
+	 */
+	public SnapReader(String filename, int numThreads) throws IOException {
+		FileInputStream in = new FileInputStream(filename);
+		Chunk[] chunks;
+		try {
+			FileChannel channel = in.getChannel();
+			if (numThreads > 1 && channel.size() >= PARALLEL_THRESHOLD)
+				chunks = readParallel(channel, numThreads);
+			else
+				chunks = new Chunk[] { readSerial(channel) };
+		} finally {
+			in.close();
+		}
+
+		List<String> header = chunks[0].header;
+		if (header.size() >= 2)
+			name = header.get(1);
+		for (Chunk chunk : chunks)
+			connections += chunk.size;
+		if (connections == 0)
+			throw new IOException(filename + " has no edges");
+		graph = build(chunks);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the number of edge lines read
+	 */
+	public int getConnections() {
+		return connections;
+	}
+
+	public CSRGraph getGraph() {
+		return graph;
+	}
+
+	private Chunk readSerial(FileChannel channel) throws IOException {
+		Chunk chunk = new Chunk(1024, true);
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		while (channel.read(buffer) > 0) {
+			chunk.parse(buffer, buffer.position());
+			buffer.clear();
+		}
+		chunk.finish();
+		return chunk;
+	}
+
+	private Chunk[] readParallel(final FileChannel channel, int numThreads) throws IOException {
+		long fileSize = channel.size();
+		long chunkSize = Math.min(1 << 30, Math.max(1 << 20, fileSize / (numThreads * 4)));
+
+		ArrayList<Long> starts = new ArrayList<Long>();
+		ByteBuffer probe = ByteBuffer.allocate(4096);
+		long start = 0;
+		while (start < fileSize) {
+			starts.add(start);
+			start = nextLine(channel, start + chunkSize, probe);
+		}
+		starts.add(fileSize);
+
+		final Chunk[] chunks = new Chunk[starts.size() - 1];
+		ArrayList<Callable<Object>> tasks = new ArrayList<Callable<Object>>(chunks.length);
+		for (int i = 0; i < chunks.length; i++) {
+			final int index = i;
+			final long from = starts.get(i);
+			final long length = starts.get(i + 1) - from;
+			tasks.add(new Callable<Object>() {
+				public Object call() throws IOException {
+					ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+					Chunk chunk = new Chunk((int)(length / 12), false);
+					chunk.parse(mapped, (int)length);
+					chunk.finish();
+					chunks[index] = chunk;
+					return null;
+				}
+			});
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(numThreads);
+		try {
+			for (Future<Object> f : pool.invokeAll(tasks))
+				f.get();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		return chunks;
+	}
+
+	/**
+	 * @return the offset just past the first newline at or after pos, or the
+	 * file size if there is none
+	 */
+	private static long nextLine(FileChannel channel, long pos, ByteBuffer probe) throws IOException {
+		long fileSize = channel.size();
+		while (pos < fileSize) {
+			probe.clear();
+			int read = channel.read(probe, pos);
+			if (read <= 0)
+				break;
+			for (int i = 0; i < read; i++)
+				if (probe.get(i) == '\n')
+					return pos + i + 1;
+			pos += read;
+		}
+		return fileSize;
+	}
+
+	/**
+	 * Remaps every chunk's raw ids to dense ones, in file order, and lays the
+	 * edges out as an undirected CSR graph. The source is the first vertex in
+	 * the file.
+	 */
+	private CSRGraph build(Chunk[] chunks) {
+		idMap = new IntIntHashMap(Math.max(expectedNodes, connections / 4));
+		rawIds = new int[Math.max(16, expectedNodes)];
+		for (Chunk chunk : chunks) {
+			for (int e = 0; e < chunk.size; e++) {
+				chunk.from[e] = denseId(chunk.from[e]);
+				chunk.to[e] = denseId(chunk.to[e]);
+			}
+		}
+
+		int numNodes = idMap.size();
+		int[] offsets = new int[numNodes + 1];
+		for (Chunk chunk : chunks) {
+			for (int e = 0; e < chunk.size; e++) {
+				offsets[chunk.from[e] + 1]++;
+				offsets[chunk.to[e] + 1]++;
+			}
+		}
+		for (int v = 0; v < numNodes; v++)
+			offsets[v + 1] += offsets[v];
+
+		int[] next = Arrays.copyOf(offsets, numNodes);
+		int[] targets = new int[offsets[numNodes]];
+		for (Chunk chunk : chunks) {
+			for (int e = 0; e < chunk.size; e++) {
+				targets[next[chunk.from[e]]++] = chunk.to[e];
+				targets[next[chunk.to[e]]++] = chunk.from[e];
+			}
+			chunk.from = null;
+			chunk.to = null;
+		}
+		int[] weights = new int[targets.length];
+		Arrays.fill(weights, 1);
+		int[] ids = Arrays.copyOf(rawIds, numNodes);
+		idMap = null;
+		rawIds = null;
+		return new CSRGraph(offsets, targets, weights, ids, 0);
+	}
+
+	private int denseId(int raw) {
+		int numNodes = idMap.size();
+		int id = idMap.putIfAbsent(raw, numNodes);
+		if (id == numNodes) {
+			if (numNodes == rawIds.length)
+				rawIds = Arrays.copyOf(rawIds, numNodes * 2);
+			rawIds[numNodes] = raw;
+		}
+		return id;
+	}
+
+	/**
+	 * Parser for one line aligned piece of the file, collecting the raw
+	 * (not yet remapped) edges it contains.
+	 */
+	private class Chunk {
+		public int[] from;
+		public int[] to;
+		public int size;
+		public final ArrayList<String> header = new ArrayList<String>();
+		private final boolean wholeFile;
+
+		// Parser state; kept in fields so numbers can straddle buffer refills.
+		private boolean lineStart = true;
+		private boolean comment;
+		private StringBuilder commentLine = new StringBuilder();
+		private boolean inNumber;
+		private int value;
+		private int column;
+		private int first;
+
+		public Chunk(int expectedEdges, boolean wholeFile) {
+			from = new int[Math.max(16, expectedEdges)];
+			to = new int[from.length];
+			this.wholeFile = wholeFile;
+		}
+
+		public void parse(ByteBuffer buf, int length) {
+			for (int i = 0; i < length; i++) {
+				byte c = buf.get(i);
+				if (comment) {
+					if (c == '\n')
+						endComment();
+					else if (c != '\r')
+						commentLine.append((char)c);
+					continue;
+				}
+				if (c >= '0' && c <= '9') {
+					value = value * 10 + (c - '0');
+					inNumber = true;
+					lineStart = false;
+					continue;
+				}
+				if (inNumber) {
+					number(value);
+					value = 0;
+					inNumber = false;
+				}
+				if (c == '\n') {
+					lineStart = true;
+					column = 0;
+				}
+				else if (c == '#' && lineStart)
+					comment = true;
+				else
+					lineStart = false;
+			}
+		}
+
+		public void finish() {
+			if (inNumber)
+				number(value);
+			if (comment)
+				endComment();
+		}
+
+		private void endComment() {
+			String line = "#" + commentLine.toString();
+			commentLine.setLength(0);
+			comment = false;
+			header.add(line);
+
+			int nodesAt = line.indexOf("Nodes:");
+			int edgesAt = line.indexOf("Edges:");
+			if (nodesAt >= 0 && edgesAt > nodesAt && size == 0) {
+				try {
+					expectedNodes = Integer.parseInt(line.substring(nodesAt + 6, edgesAt).trim());
+					int expectedEdges = Integer.parseInt(line.substring(edgesAt + 6).trim().split("\\s")[0]);
+					// A piece of a split file only holds a share of the edges.
+					if (wholeFile) {
+						from = Arrays.copyOf(from, Math.max(from.length, expectedEdges));
+						to = Arrays.copyOf(to, from.length);
+					}
+				}
+				catch (NumberFormatException E) {
+					System.out.println("Error: bad header line " + line);
+				}
+			}
+		}
+
+		/**
+		 * Called for every integer; the first two on each line make an edge and
+		 * anything after them is ignored.
+		 */
+		private void number(int n) {
+			if (column == 0)
+				first = n;
+			else if (column == 1) {
+				if (size == from.length) {
+					from = Arrays.copyOf(from, size * 2);
+					to = Arrays.copyOf(to, size * 2);
+				}
+				from[size] = first;
+				to[size] = n;
+				size++;
+			}
+			column++;
+		}
+	}
+}
@@ -0,0 +1,217 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+
+/**
+ * A relaxed concurrent priority queue after Alistarh, Kopinsky, Li and
+ * Shavit, "The SprayList". Items sit in a lock-free skip list ordered by
+ * (key, id) (Herlihy and Shavit's, where a node is removed by marking its
+ * links from the top down and whoever marks the bottom link owns it).
+ *
+ * deleteMin() does not go for the first node. It "sprays": starting at
+ * height log p + 1 it jumps a random 0 to (log p)^3 nodes along each level,
+ * dropping max(1, log log p) levels at a time, and claims the first live
+ * node at or after where it lands. For p threads the landing spots spread
+ * over roughly the first p (log p)^3 items, so pops mostly hit different
+ * nodes instead of all fighting over the head. The item returned is close
+ * to the minimum, not necessarily the minimum itself; with p = 1 the spray
+ * never leaves the head and pops are exact.
+ *
+ * Sprays land on tall nodes more often than on short ones, so on their own
+ * they leave the front with only short nodes and the next sprays overshoot
+ * further and further. So one pop in p is a cleaner instead: it takes the
+ * first live node, which keeps the front moving.
+ */
+public class SprayList<E> {
+	private static final int MAX_LEVEL = 32;
+
+	private final Node<E> head;
+	private final Node<E> tail;
+	private final int threads;
+	private final int startHeight;
+	private final int jumpLength;
+	private final int descend;
+
+	private static final class Node<E> {
+		final E item;
+		final int key;
+		final int id;
+		// Marked once the node is being removed.
+		final AtomicMarkableReference<Node<E>>[] next;
+
+		Node(E item, int key, int id, int height) {
+			this.item = item;
+			this.key = key;
+			this.id = id;
+			next = newLinks(height);
+			for (int i = 0; i < height; i++)
+				next[i] = new AtomicMarkableReference<Node<E>>(null, false);
+		}
+
+		@SuppressWarnings("unchecked")
+		private static <E> AtomicMarkableReference<Node<E>>[] newLinks(int height) {
+			return (AtomicMarkableReference<Node<E>>[])new AtomicMarkableReference<?>[height];
+		}
+	}
+
+	/**
+	 * @return a MAX_LEVEL array for find() to fill in
+	 */
+	@SuppressWarnings("unchecked")
+	private static <E> Node<E>[] newLevels() {
+		return (Node<E>[])new Node<?>[MAX_LEVEL];
+	}
+
+	/**
+	 * @param threads number of threads popping concurrently, which sets how
+	 * far the sprays spread
+	 */
+	public SprayList(int threads) {
+		this.threads = Math.max(1, threads);
+		int logP = 32 - Integer.numberOfLeadingZeros(this.threads - 1);
+		startHeight = Math.min(MAX_LEVEL - 1, logP + 1);
+		jumpLength = logP * logP * logP;
+		descend = Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(1, logP) - 1));
+		tail = new Node<E>(null, Integer.MAX_VALUE, Integer.MAX_VALUE, MAX_LEVEL);
+		head = new Node<E>(null, Integer.MIN_VALUE, Integer.MIN_VALUE, MAX_LEVEL);
+		for (int i = 0; i < MAX_LEVEL; i++)
+			head.next[i].set(tail, false);
+	}
+
+	private boolean less(Node<E> node, int key, int id) {
+		return node != tail && (node.key < key || (node.key == key && node.id < id));
+	}
+
+	/**
+	 * Finds the predecessor and successor of (key, id) on every level,
+	 * unlinking marked nodes on the way. preds and succs may be null when
+	 * only the unlinking is wanted.
+	 */
+	private void find(int key, int id, Node<E>[] preds, Node<E>[] succs) {
+		boolean[] marked = new boolean[1];
+		retry:
+		while (true) {
+			Node<E> pred = head;
+			for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+				Node<E> curr = pred.next[level].getReference();
+				while (true) {
+					if (curr == tail)
+						break;
+					Node<E> succ = curr.next[level].get(marked);
+					while (marked[0]) {
+						if (!pred.next[level].compareAndSet(curr, succ, false, false))
+							continue retry;
+						curr = succ;
+						if (curr == tail)
+							break;
+						succ = curr.next[level].get(marked);
+					}
+					if (!less(curr, key, id))
+						break;
+					pred = curr;
+					curr = succ;
+				}
+				if (preds != null) {
+					preds[level] = pred;
+					succs[level] = curr;
+				}
+			}
+			return;
+		}
+	}
+
+	private static int randomLevel() {
+		int bits = ThreadLocalRandom.current().nextInt() | (1 << (MAX_LEVEL - 1));
+		return Integer.numberOfTrailingZeros(bits) + 1;
+	}
+
+	public void insert(E item, int key, int id) {
+		int height = randomLevel();
+		Node<E> node = new Node<E>(item, key, id, height);
+		Node<E>[] preds = newLevels();
+		Node<E>[] succs = newLevels();
+		while (true) {
+			find(key, id, preds, succs);
+			for (int level = 0; level < height; level++)
+				node.next[level].set(succs[level], false);
+			if (preds[0].next[0].compareAndSet(succs[0], node, false, false))
+				break;
+		}
+		for (int level = 1; level < height; level++) {
+			while (true) {
+				if (preds[level].next[level].compareAndSet(succs[level], node, false, false))
+					break;
+				find(key, id, preds, succs);
+				// A CAS, not a set, so a remover's mark is never undone; if
+				// the link is marked the node is gone and we are done.
+				Node<E> old = node.next[level].getReference();
+				if (node.next[0].isMarked()
+				    || (old != succs[level] && !node.next[level].compareAndSet(old, succs[level], false, false)))
+					return;
+			}
+		}
+	}
+
+	/**
+	 * Marks node's links from the top down and then unlinks it.
+	 *
+	 * @return false if another thread got to the bottom link first
+	 */
+	private boolean remove(Node<E> node) {
+		boolean[] marked = new boolean[1];
+		for (int level = node.next.length - 1; level > 0; level--) {
+			Node<E> succ = node.next[level].get(marked);
+			while (!marked[0]) {
+				node.next[level].compareAndSet(succ, succ, false, true);
+				succ = node.next[level].get(marked);
+			}
+		}
+		while (true) {
+			Node<E> succ = node.next[0].get(marked);
+			if (marked[0])
+				return false;
+			if (node.next[0].compareAndSet(succ, succ, false, true)) {
+				// Unlink it; nothing needs the predecessors.
+				find(node.key, node.id, null, null);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * @return an item near the front of the queue, or null if it is empty
+	 */
+	public E deleteMin() {
+		ThreadLocalRandom r = ThreadLocalRandom.current();
+		// Spray down to the bottom level. One pop in p cleans up instead
+		// and takes the first node; see above.
+		Node<E> x = head;
+		if (jumpLength > 0 && r.nextInt(threads) != 0) {
+			for (int level = startHeight; level >= 0; level -= descend) {
+				for (int steps = r.nextInt(jumpLength + 1); steps > 0; steps--) {
+					Node<E> next = x.next[level].getReference();
+					if (next == tail)
+						break;
+					x = next;
+				}
+			}
+		}
+		// Take the first live node from there on; if everything after the
+		// landing spot is gone, fall back to the front.
+		while (true) {
+			for (Node<E> node = x == head ? head.next[0].getReference() : x; node != tail; node = node.next[0].getReference()) {
+				if (!node.next[0].isMarked() && remove(node))
+					return node.item;
+			}
+			if (x == head)
+				return null;
+			x = head;
+		}
+	}
+
+	public boolean isEmpty() {
+		for (Node<E> node = head.next[0].getReference(); node != tail; node = node.next[0].getReference())
+			if (!node.next[0].isMarked())
+				return false;
+		return true;
+	}
+}
@@ -0,0 +1,118 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Tester for SprayList. Sized for one thread pops must come out in (key,
+ * id) order; sized for several, each pop must still be one of the first few
+ * hundred items, and concurrent producers and consumers must pop every item
+ * once.
+ */
+public class SprayListTest {
+
+	private final int testSize = 100000;
+	private final int numThreads = 4;
+
+	public static void main(String[] args) throws InterruptedException {
+		SprayListTest test = new SprayListTest();
+		test.testSerial();
+		test.testRelaxed();
+		test.testConcurrent();
+	}
+
+	public boolean assertEquals(String title, boolean test, boolean result)
+	{
+		if(test != result)
+			System.out.println(title+": failed!");
+		return test == result;
+	}
+
+	public void testSerial() {
+		System.out.println("Test Serial");
+		SprayList<int[]> queue = new SprayList<int[]>(1);
+		for(int i = 0; i < testSize; i++) {
+			int key = (int)(100 * Rnd.dbl());
+			queue.insert(new int[] {key, i}, key, i);
+		}
+
+		int[] last = {Integer.MIN_VALUE, Integer.MIN_VALUE};
+		int popped = 0;
+		int[] min;
+		while ((min = queue.deleteMin()) != null) {
+			boolean ordered = min[0] > last[0] || (min[0] == last[0] && min[1] > last[1]);
+			if (!assertEquals("Order", true, ordered))
+				break;
+			last = min;
+			popped++;
+		}
+		assertEquals("Count", true, popped == testSize);
+		assertEquals("Empty", true, queue.isEmpty());
+	}
+
+	/**
+	 * Distinct keys 0..testSize-1; a pop's rank among the remaining keys must
+	 * stay within the spray's reach.
+	 */
+	public void testRelaxed() {
+		System.out.println("Test Relaxed");
+		SprayList<Integer> queue = new SprayList<Integer>(8);
+		for(int i = 0; i < testSize; i++) {
+			int key = (int)((long)i * 7919 % testSize);
+			queue.insert(key, key, key);
+		}
+		TreeSet<Integer> remaining = new TreeSet<Integer>();
+		for(int i = 0; i < testSize; i++)
+			remaining.add(i);
+		int worst = 0;
+		Integer min;
+		while ((min = queue.deleteMin()) != null) {
+			worst = Math.max(worst, remaining.headSet(min).size());
+			if (!assertEquals("Popped once", true, remaining.remove(min)))
+				return;
+		}
+		assertEquals("Count", true, remaining.isEmpty());
+		// 8 threads spray over about 8 * 3^3 items.
+		if (!assertEquals("Rank", true, worst < 2000))
+			System.out.println("worst rank " + worst);
+	}
+
+	public void testConcurrent() throws InterruptedException {
+		System.out.println("Test Concurrent");
+		final SprayList<Integer> queue = new SprayList<Integer>(numThreads);
+		final AtomicIntegerArray seen = new AtomicIntegerArray(testSize * numThreads);
+		final AtomicInteger remaining = new AtomicInteger(testSize * numThreads);
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+
+		for(int t = 0; t < numThreads; t++) {
+			final int offset = t * testSize;
+			threads.add(new Thread() {
+				public void run() {
+					for(int i = 0; i < testSize; i++)
+						queue.insert(offset + i, ThreadLocalRandom.current().nextInt(1000000), offset + i);
+				}
+			});
+			threads.add(new Thread() {
+				public void run() {
+					while (remaining.get() > 0) {
+						Integer min = queue.deleteMin();
+						if (min == null)
+							continue;
+						seen.incrementAndGet(min);
+						remaining.decrementAndGet();
+					}
+				}
+			});
+		}
+		for(Thread thread : threads)
+			thread.start();
+		for(Thread thread : threads)
+			thread.join();
+
+		for(int i = 0; i < seen.length(); i++)
+			if (!assertEquals("Popped once", true, seen.get(i) == 1)) {
+				System.out.println(i + " popped " + seen.get(i) + " times");
+				break;
+			}
+		assertEquals("Empty", true, queue.deleteMin() == null);
+	}
+}
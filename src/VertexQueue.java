@@ -0,0 +1,32 @@
+/**
+ * An addressable priority queue of graph vertices keyed on their tentative
+ * distance, as needed by DijkstraDriver. insert(), decreaseKey() and
+ * deleteMin() must be safe to call from several threads at once, although
+ * the driver never pops while other threads are updating.
+ *
+ * A queue keeps the keys itself, so getKey() still answers for a vertex
+ * after it was popped.
+ */
+public interface VertexQueue<T> {
+	/**
+	 * Queues node, which must not be queued already, with the given key.
+	 */
+	public void insert(GraphNode<T> node, int key);
+
+	/**
+	 * @return the vertex with the smallest key, or null if the queue is empty
+	 */
+	public GraphNode<T> deleteMin();
+
+	/**
+	 * Lowers the key of a queued node. Keys that are not lower are ignored.
+	 */
+	public void decreaseKey(GraphNode<T> node, int key);
+
+	/**
+	 * @return the key node was last given
+	 */
+	public int getKey(GraphNode<T> node);
+
+	public int size();
+}